@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @Title: ApiResponse
+ * @author: agent
+ * @Description:
+ * Response of CMRestAPIHandler, independent of the server which sends it.
+ * body is null if response has no body.
+ * Created on: 2026/10/17
+ */
+class ApiResponse {
+    static final String JSON_UTF8 = "application/json;charset=UTF-8";
+    static final String TEXT_UTF8 = "text/plain;charset=UTF-8";
+    final int status;
+    final Map<String, String> headers = new LinkedHashMap<>();
+    final byte[] body;
+
+    ApiResponse(int status, String contentType, byte[] body) {
+        this.status = status;
+        this.body = body;
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+    }
+
+    static ApiResponse text(int status, String msg) {
+        return new ApiResponse(status, TEXT_UTF8, msg.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ApiResponse json(int status, String json) {
+        return new ApiResponse(status, JSON_UTF8, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ApiResponse empty(int status) {
+        return new ApiResponse(status, null, null);
+    }
+
+    ApiResponse header(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+}
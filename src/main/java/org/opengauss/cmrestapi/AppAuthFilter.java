@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * @Title: AppAuthFilter
+ * @author: agent
+ * @Description:
+ * Resolve client ip of every request and check it against app white list,
+ * requests from clients not in white list are rejected with 401.
+ * Requests arriving before CMRestAPI is ready are rejected with 503,
+ * requests exceeding rate limit of client and route with 429.
+ * Client ip of accepted requests is stored in request attribute CLIENT_IP_ATTRIBUTE.
+ * Created on: 2026/10/17
+ */
+@Component
+public class AppAuthFilter extends OncePerRequestFilter {
+    public static final String CLIENT_IP_ATTRIBUTE = AppAuthFilter.class.getName() + ".clientIp";
+    private final ClientIpResolver clientIpResolver = new ClientIpResolver();
+    private final CMRestAPIHandler handler = new CMRestAPIHandler();
+
+    /**
+     * @Title: getClientIp
+     * @Description:
+     * Get client ip resolved by this filter.
+     * @param request
+     * @return
+     * String
+     */
+    public static String getClientIp(HttpServletRequest request) {
+        return (String) request.getAttribute(CLIENT_IP_ATTRIBUTE);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientIp = clientIpResolver.resolve(request::getHeader, request.getRemoteAddr());
+        ApiResponse rejection = handler.authorize(clientIp, request.getServletPath());
+        if (rejection != null) {
+            response.setStatus(rejection.status);
+            for (Map.Entry<String, String> header : rejection.headers.entrySet()) {
+                response.setHeader(header.getKey(), header.getValue());
+            }
+            response.getOutputStream().write(rejection.body);
+            return;
+        }
+        request.setAttribute(CLIENT_IP_ATTRIBUTE, clientIp);
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: AppWhiteList
+ * @author: agent
+ * @Description:
+ * Ip white list of applications, loaded from appWhiteListFile which contains one entry per line.
+ * An entry is an ipv4 address, an ipv4 CIDR range such as 192.168.0.0/24, or any other
+ * address which is matched literally.
+ * The white list is held as an immutable snapshot and replaced as a whole when the file
+ * changes, so checking an ip never waits for or sees a partial reload.
+ * Changes are detected by watching the directory of the file, the file is also checked every
+ * cmrestapi.whitelist.checkInterval ms (default 5000) in case an event is missed.
+ * If the file does not exist, all clients are allowed; if it can not be read, all are denied.
+ * Created on: 2026/10/17
+ */
+public class AppWhiteList implements Runnable {
+    private static final long CHECK_INTERVAL = Long.getLong("cmrestapi.whitelist.checkInterval", 5000L);
+    private static final Snapshot ALLOW_ALL = new Snapshot(true, null, Collections.emptySet());
+    private static final Snapshot DENY_ALL = new Snapshot(false, null, Collections.emptySet());
+    private final String THREAD_NAME;
+    private Thread thread;
+    private final String appWhiteListFile;
+    private volatile Snapshot snapshot = ALLOW_ALL;
+    private long lastModified = -1L;
+    private Logger logger = LoggerFactory.getLogger(AppWhiteList.class);
+
+    /**
+     * @Title: AppWhiteList
+     * @Description:
+     * @param appWhiteListFile: null means no white list, all clients are allowed
+     */
+    public AppWhiteList(String appWhiteListFile) {
+        THREAD_NAME = "AppWhiteListWatcher";
+        this.appWhiteListFile = appWhiteListFile;
+    }
+
+    /**
+     * @Title: Snapshot
+     * @author: agent
+     * @Description: Immutable content of white list.
+     * Created on: 2026/10/17
+     */
+    static class Snapshot {
+        final boolean allowAll;
+        final PrefixTrie ipv4Ranges;
+        final Set<String> others;
+
+        Snapshot(boolean allowAll, PrefixTrie ipv4Ranges, Set<String> others) {
+            this.allowAll = allowAll;
+            this.ipv4Ranges = ipv4Ranges;
+            this.others = others;
+        }
+
+        boolean contains(String ip) {
+            if (allowAll) {
+                return true;
+            }
+            long ipv4 = parseIpv4(ip, 0, ip.length());
+            if (ipv4 >= 0 && ipv4Ranges != null) {
+                return ipv4Ranges.contains((int) ipv4);
+            }
+            return others.contains(ip);
+        }
+    }
+
+    /**
+     * @Title: PrefixTrie
+     * @author: agent
+     * @Description:
+     * Binary trie of ipv4 prefixes, stored in an int array with two child slots per node.
+     * A node which ends a prefix is marked terminal and never gets children, since every
+     * address below it matches anyway.
+     * Created on: 2026/10/17
+     */
+    static class PrefixTrie {
+        private static final int TERMINAL = -1;
+        private int[] children = new int[64];
+        private int size = 1;
+
+        /**
+         * @Title: add
+         * @Description:
+         * Add prefix of length bits.
+         * @param prefix
+         * @param length: 0 ~ 32
+         * void
+         */
+        void add(int prefix, int length) {
+            int node = 0;
+            for (int i = 0; i < length; i++) {
+                int slot = node * 2 + ((prefix >>> (31 - i)) & 1);
+                int child = children[slot];
+                if (child == TERMINAL) {
+                    return;
+                }
+                if (child == 0) {
+                    child = newNode();
+                    children[slot] = child;
+                }
+                node = child;
+            }
+            // drop prefixes below, they are covered by this one now
+            children[node * 2] = TERMINAL;
+            children[node * 2 + 1] = TERMINAL;
+        }
+
+        private int newNode() {
+            if ((size + 1) * 2 > children.length) {
+                children = Arrays.copyOf(children, children.length * 2);
+            }
+            return size++;
+        }
+
+        /**
+         * @Title: contains
+         * @Description:
+         * Check whether ip is covered by any prefix.
+         * @param ip
+         * @return
+         * boolean
+         */
+        boolean contains(int ip) {
+            int node = 0;
+            for (int i = 0; i < 32; i++) {
+                int child = children[node * 2 + ((ip >>> (31 - i)) & 1)];
+                if (child == TERMINAL) {
+                    return true;
+                }
+                if (child == 0) {
+                    return false;
+                }
+                node = child;
+            }
+            return children[node * 2] == TERMINAL;
+        }
+    }
+
+    /**
+     * @Title: parseIpv4
+     * @Description:
+     * Parse dotted decimal ipv4 address in s[begin, end) without allocation.
+     * @param s
+     * @param begin
+     * @param end
+     * @return
+     * long: address as unsigned 32 bits, -1 if it is not an ipv4 address
+     */
+    static long parseIpv4(String s, int begin, int end) {
+        long ip = 0L;
+        int octet = -1;
+        int octets = 0;
+        for (int i = begin; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1L;
+                }
+            } else if (c == '.' && octet >= 0 && octets < 3) {
+                ip = (ip << 8) | octet;
+                octet = -1;
+                octets++;
+            } else {
+                return -1L;
+            }
+        }
+        if (octet < 0 || octets != 3) {
+            return -1L;
+        }
+        return (ip << 8) | octet;
+    }
+
+    /**
+     * @Title: isAllowed
+     * @Description:
+     * Check whether client ip is in white list.
+     * @param clientIp
+     * @return
+     * boolean
+     */
+    public boolean isAllowed(String clientIp) {
+        return snapshot.contains(clientIp);
+    }
+
+    /**
+     * @Title: parse
+     * @Description:
+     * Build snapshot from lines of white list file.
+     * @param lines
+     * @return
+     * Snapshot
+     */
+    static Snapshot parse(List<String> lines) {
+        PrefixTrie ipv4Ranges = new PrefixTrie();
+        Set<String> others = new HashSet<>();
+        for (String line : lines) {
+            String entry = line.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int slash = entry.indexOf('/');
+            long prefix = parseIpv4(entry, 0, slash < 0 ? entry.length() : slash);
+            int length = slash < 0 ? 32 : parsePrefixLength(entry, slash + 1);
+            if (prefix < 0 || length < 0) {
+                others.add(entry);
+                continue;
+            }
+            ipv4Ranges.add((int) prefix, length);
+        }
+        return new Snapshot(false, ipv4Ranges, Collections.unmodifiableSet(others));
+    }
+
+    private static int parsePrefixLength(String entry, int begin) {
+        if (begin >= entry.length() || entry.length() - begin > 2) {
+            return -1;
+        }
+        int length = 0;
+        for (int i = begin; i < entry.length(); i++) {
+            char c = entry.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            length = length * 10 + (c - '0');
+        }
+        return length <= 32 ? length : -1;
+    }
+
+    /**
+     * @Title: reload
+     * @Description:
+     * Reload white list if the file was modified, created or deleted since last load.
+     * void
+     */
+    public void reload() {
+        File file = new File(appWhiteListFile);
+        long modified = file.exists() ? file.lastModified() : 0L;
+        if (modified == lastModified) {
+            return;
+        }
+        lastModified = modified;
+        if (modified == 0L) {
+            logger.warn("{} does not exist, all clients are allowed.", appWhiteListFile);
+            snapshot = ALLOW_ALL;
+            return;
+        }
+        try {
+            Snapshot latest = parse(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+            snapshot = latest;
+            logger.info("Loaded app white list from {}.", appWhiteListFile);
+        } catch (IOException e) {
+            snapshot = DENY_ALL;
+            logger.error("Failed to read {}, all clients are denied.\nDetail:", appWhiteListFile, e);
+        }
+    }
+
+    private void watch() throws IOException, InterruptedException {
+        Path path = Paths.get(appWhiteListFile).toAbsolutePath();
+        Path fileName = path.getFileName();
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            logger.info("Watching {}.", path);
+            for (;;) {
+                WatchKey watchKey = watchService.poll(CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                if (watchKey != null) {
+                    boolean hasChanged = false;
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                            hasChanged = true;
+                        }
+                    }
+                    if (!watchKey.reset()) {
+                        throw new IOException(path.getParent() + " is no longer accessible");
+                    }
+                    if (hasChanged) {
+                        // file may be written several times in a row, reload once it settles
+                        Thread.sleep(100);
+                    }
+                }
+                reload();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            try {
+                watch();
+            } catch (IOException e) {
+                logger.error("Failed to watch {}, check it periodically instead.\nDetail:", appWhiteListFile, e);
+            }
+            for (;;) {
+                Thread.sleep(CHECK_INTERVAL);
+                reload();
+            }
+        } catch (InterruptedException e) {
+            logger.error("{}", e);
+        }
+    }
+
+    /**
+     * @Title: start
+     * @Description:
+     * Load white list and start watching its file, do nothing if there is no white list file.
+     * void
+     */
+    public void start() {
+        if (appWhiteListFile == null) {
+            return;
+        }
+        reload();
+        logger.info("Starting thread {}.", THREAD_NAME);
+        if (thread == null) {
+            thread = new Thread(this, THREAD_NAME);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+}
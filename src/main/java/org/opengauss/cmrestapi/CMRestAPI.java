@@ -18,12 +18,22 @@ import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,9 +42,14 @@ import java.util.regex.Pattern;
  * @author: xuemengen
  * @Description:
  * Main entry.
- * (1) Initialization, acquisition and verification of information required by the program.
- * (2) Start the cluster information query server thread -- InfoQueryThread.
+ * (1) Start the cluster information query server thread -- InfoQueryThread, which answers
+ *     requests with 503 until CMRestAPI is ready.
+ * (2) Initialization, acquisition and verification of information required by the program,
+ *     independent checks are done concurrently.
  * (3) Start the thread of monitoring database role change to primary -- Role2PrimaryMonitor.
+ * Time to wait for gaussdb process (ms) can be set by system property cmrestapi.startup.gaussdbWait.
+ * Server is CMRestAPIServer on Spring by default, or LiteHttpServer on the http server of JDK
+ * if system property cmrestapi.server.mode is lite.
  * Created on: 2022/09/07
  */
 public class CMRestAPI {
@@ -48,12 +63,22 @@ public class CMRestAPI {
     public static int nodeId;
     public static String peerIpPorts = null;
     public static OGCmdExecuter ogCmdExecuter = null;
+    public static ClusterEventBus clusterEventBus = null;
+    public static FailoverTraceBuffer failoverTraceBuffer = null;
+    public static ClusterStatusRefresher clusterStatusRefresher = null;
+    public static RecvAddrRegistry recvAddrRegistry = null;
+    public static RecvAddrConnectionKeeper recvAddrConnectionKeeper = null;
     public static String appWhiteListFile = null;
-    public static HashSet<String> appWhiteList = null;
-    public static Long lastModified = 0l;
+    public static AppWhiteList appWhiteList = null;
+    public static RateLimiter rateLimiter = null;
+    public static volatile boolean isReady = false;
     private static Logger logger = LoggerFactory.getLogger(CMRestAPI.class);
-    private static final String CHECK_GAUSSDB_PROCESS_CMD = 
-            "ps ux | grep -v grep | grep \"bin/gaussdb -D \" | awk '{print $2}'";
+    private static final String GAUSSDB_PROCESS_PATTERN = "bin/gaussdb -D ";
+    private static final long GAUSSDB_WAIT = Long.getLong("cmrestapi.startup.gaussdbWait", 60000L);
+    private static final long MIN_GAUSSDB_CHECK_INTERVAL = 50L;
+    private static final long MAX_GAUSSDB_CHECK_INTERVAL = 2000L;
+    private static final String SERVER_MODE = System.getProperty("cmrestapi.server.mode", "spring");
+    private static final String LITE_SERVER_MODE = "lite";
     /**
      * @Title: main
      * @Description:
@@ -63,20 +88,109 @@ public class CMRestAPI {
      *  [-w appWhiteListFile]
      */
     public static void main(String[] args) {
+        long start = System.nanoTime();
         parseAndCheckCmdLine(args);
         checkEnvfileAndDataPath();
-        ogCmdExecuter = new OGCmdExecuter(envFile);
-        if (!checkGaussdbRunning()) {
-            logger.error("Gaussdb is not running, waiting for more than 30s, exit!");
-            System.exit(ErrorCode.ESRCH.getCode());
+        rateLimiter = new RateLimiter();
+        rateLimiter.start();
+        // server starts while checks run, requests are rejected with 503 until ready
+        startServer();
+        ExecutorService startupPool = Executors.newFixedThreadPool(4, new StartupThreadFactory());
+        CompletableFuture<Void> envChecked = CompletableFuture.runAsync(CMRestAPI::checkEnvfileValid, startupPool);
+        CompletableFuture<Void> gaussdbChecked = CompletableFuture.runAsync(() -> {
+            if (!checkGaussdbRunning()) {
+                logger.error("Gaussdb is not running, waiting for more than {}ms, exit!", GAUSSDB_WAIT);
+                System.exit(ErrorCode.ESRCH.getCode());
+            }
+        }, startupPool);
+        CompletableFuture<Void> staticInfoGot = CompletableFuture.runAsync(() -> {
+            ogCmdExecuter = new OGCmdExecuter(envFile);
+            getClusterStaticInfo();
+        }, startupPool);
+        CompletableFuture<Void> whiteListLoaded = CompletableFuture.runAsync(() -> {
+            if (appWhiteListFile != null) {
+                checkAppWhiteListFile();
+            }
+            appWhiteList = new AppWhiteList(appWhiteListFile);
+            appWhiteList.start();
+        }, startupPool);
+        clusterEventBus = new ClusterEventBus();
+        clusterEventBus.start();
+        failoverTraceBuffer = new FailoverTraceBuffer();
+        // commands below need valid env file, static cluster info and running gaussdb
+        awaitStartupTasks(envChecked, staticInfoGot, gaussdbChecked);
+        CompletableFuture<Void> refresherStarted = CompletableFuture.runAsync(() -> {
+            clusterStatusRefresher = new ClusterStatusRefresher();
+            clusterStatusRefresher.start();
+        }, startupPool);
+        CompletableFuture<Void> registryStarted = CompletableFuture.runAsync(() -> {
+            recvAddrRegistry = new RecvAddrRegistry();
+            recvAddrRegistry.start();
+        }, startupPool);
+        awaitStartupTasks(whiteListLoaded, refresherStarted, registryStarted);
+        startupPool.shutdown();
+        recvAddrConnectionKeeper = new RecvAddrConnectionKeeper();
+        recvAddrConnectionKeeper.start();
+        new Role2PrimaryMonitor().start();
+        isReady = true;
+        logger.info("CMRestAPI is ready in {}ms.", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @Title: startServer
+     * @Description:
+     * Start server of the mode set by cmrestapi.server.mode.
+     * void
+     */
+    private static void startServer() {
+        if (!LITE_SERVER_MODE.equalsIgnoreCase(SERVER_MODE)) {
+            new InfoQueryThread().start();
+            return;
         }
-        getClusterStaticInfo();
-        if (appWhiteListFile != null) {
-            checkAppWhiteListFile();
-            getAppWhiteList();
+        // without Spring, nothing lowers the default debug level of logback
+        Logger rootLogger = LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        if (rootLogger instanceof ch.qos.logback.classic.Logger) {
+            ((ch.qos.logback.classic.Logger) rootLogger).setLevel(ch.qos.logback.classic.Level.INFO);
+        }
+        try {
+            new LiteHttpServer().start();
+        } catch (IOException e) {
+            logger.error("Failed to start lite http server.\nDetail:", e);
+            System.exit(ErrorCode.EUNKNOWN.getCode());
+        }
+    }
+
+    /**
+     * @Title: StartupThreadFactory
+     * @author: agent
+     * @Description: Daemon threads for startup checks.
+     * Created on: 2026/10/17
+     */
+    private static class StartupThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNo = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "StartupCheck-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * @Title: awaitStartupTasks
+     * @Description:
+     * Wait for startup tasks, exit if any of them failed.
+     * @param tasks
+     * void
+     */
+    private static void awaitStartupTasks(CompletableFuture<?>... tasks) {
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            logger.error("Failed to start CMRestAPI.\nDetail:", e.getCause());
+            System.exit(ErrorCode.EUNKNOWN.getCode());
         }
-        new Role2PrimaryMonitor().start();
-        new InfoQueryThread().start();
     }
     
     private static void getClusterStaticInfo() {
@@ -122,6 +236,9 @@ public class CMRestAPI {
             logger.error("{} is not exist!", envFile);
             System.exit(ErrorCode.ENOENT.getCode());
         }
+    }
+
+    private static void checkEnvfileValid() {
         String cmd = "source " + envFile + "; gaussdb -V";
         CmdResult cmdResult = OGCmdExecuter.execCmd(cmd);
         if (cmdResult == null || cmdResult.statusCode != 0) {
@@ -143,61 +260,79 @@ public class CMRestAPI {
     }
     
     /**
-     * @Title: appWhiteListFileModified
+     * @Title: checkGaussdbRunning
      * @Description:
-     * check whether appWhiteListFile was modified.
+     * Wait for gaussdb process of current user, check interval grows from 50ms to 2s.
      * @return
-     * boolean
+     * boolean: false if gaussdb is not running after cmrestapi.startup.gaussdbWait
      */
-    public static boolean appWhiteListFileModified() {
-        if (new File(appWhiteListFile).lastModified() > lastModified) {
-            return true;
+    private static boolean checkGaussdbRunning() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GAUSSDB_WAIT);
+        long interval = MIN_GAUSSDB_CHECK_INTERVAL;
+        for (;;) {
+            if (isGaussdbRunning()) {
+                return true;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            logger.info("gaussdb is not running, waiting");
+            try {
+                Thread.sleep(Math.min(interval, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            interval = Math.min(interval * 2, MAX_GAUSSDB_CHECK_INTERVAL);
         }
-        return false;
     }
-    
+
     /**
-     * @Title: getAppWhiteList
+     * @Title: isGaussdbRunning
      * @Description:
-     * get appWhiteList from appWhiteListFile.
-     * void
+     * Scan /proc for process of current user whose command line contains "bin/gaussdb -D ",
+     * same as ps ux | grep without launching any process.
+     * @return
+     * boolean
      */
-    public static void getAppWhiteList() {
+    private static boolean isGaussdbRunning() {
+        Object uid;
         try {
-            if (appWhiteList == null) {
-                appWhiteList = new HashSet<String>();
-            } else {
-                appWhiteList.clear();
-            }
-            BufferedReader br = new BufferedReader(new FileReader(appWhiteListFile));
-            String line = null;
-            while ((line = br.readLine()) != null) {
-                appWhiteList.add(line);
+            uid = Files.getAttribute(Paths.get("/proc/self"), "unix:uid");
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.error("Failed to get uid of current process.\nDetail:", e);
+            return false;
+        }
+        try (DirectoryStream<Path> processes = Files.newDirectoryStream(Paths.get("/proc"), "[0-9]*")) {
+            for (Path process : processes) {
+                if (isGaussdbProcess(process, uid)) {
+                    return true;
+                }
             }
-            br.close();
         } catch (IOException e) {
-            appWhiteList = null;
-            logger.error(e.getMessage());
+            logger.error("Failed to scan /proc.\nDetail:", e);
         }
+        return false;
     }
-    
-    private static boolean checkGaussdbRunning() {
-        boolean isRunning = false;
-        for (int i = 0; i < 10; ++i) {
-            CmdResult cmdResult = OGCmdExecuter.execCmd(CHECK_GAUSSDB_PROCESS_CMD);
-            if (cmdResult != null && cmdResult.statusCode == 0 &&
-                    !"".equals(cmdResult.resultString)) {
-                isRunning = true;
-                break;
+
+    private static boolean isGaussdbProcess(Path process, Object uid) {
+        try {
+            if (!uid.equals(Files.getAttribute(process, "unix:uid", LinkOption.NOFOLLOW_LINKS))) {
+                return false;
             }
-            logger.info("gaussdb is not running, waiting");
-            try {
-                Thread.sleep(6000);
-            } catch (InterruptedException e) {
-                logger.error(e.getMessage());
+            byte[] cmdline = Files.readAllBytes(process.resolve("cmdline"));
+            // arguments are separated by '\0'
+            for (int i = 0; i < cmdline.length; ++i) {
+                if (cmdline[i] == 0) {
+                    cmdline[i] = ' ';
+                }
             }
+            return new String(cmdline, StandardCharsets.UTF_8).contains(GAUSSDB_PROCESS_PATTERN);
+        } catch (IOException e) {
+            // process exited during scan
+            return false;
         }
-        return isRunning;
     }
     
     private static void parseAndCheckCmdLine(String[] args) {
@@ -14,14 +14,22 @@
  */
 package org.opengauss.cmrestapi;
 
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.StandardHttpRequestRetryHandler;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -29,22 +37,91 @@ import org.springframework.web.client.RestTemplate;
  * @author: xuemengen
  * @Description:
  * Client for pushing newest master info to server in application or other places.
+ * All clients share one pool of keep-alive connections, so a push reuses the
+ * connection kept warm by RecvAddrConnectionKeeper when possible.
  * Created on: 2022/09/07
  */
 public class CMRestAPIClient {
+    private static final long KEEP_ALIVE = 60000L;
+    private static final PoolingHttpClientConnectionManager CONNECTION_MANAGER = new PoolingHttpClientConnectionManager();
+    private static final RestTemplate REST_TEMPLATE = createRestTemplate();
     private String url;
     private RestTemplate restTemplate = null;
     private Logger logger = LoggerFactory.getLogger(CMRestAPIClient.class);
 
     public CMRestAPIClient(String url) {
         this.url = url;
-        SimpleClientHttpRequestFactory clientHttpRequestFactory = new SimpleClientHttpRequestFactory();
-        // set connect timeout = 1s
-        clientHttpRequestFactory.setConnectTimeout(1000);
-        // set sending timeout = 1s
-        clientHttpRequestFactory.setReadTimeout(1000);
-        restTemplate = new RestTemplate();
-        restTemplate.setRequestFactory(clientHttpRequestFactory);
+        restTemplate = REST_TEMPLATE;
+    }
+
+    private static RestTemplate createRestTemplate() {
+        CONNECTION_MANAGER.setMaxTotal(1024);
+        CONNECTION_MANAGER.setDefaultMaxPerRoute(4);
+        // check connections idle for a while before reusing them
+        CONNECTION_MANAGER.setValidateAfterInactivity(2000);
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(CONNECTION_MANAGER)
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? keepAlive : KEEP_ALIVE;
+                })
+                // pushing master info and standby info is idempotent
+                .setRetryHandler(new StandardHttpRequestRetryHandler(1, false))
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        // set connect timeout = 1s
+                        .setConnectTimeout(1000)
+                        // set sending timeout = 1s
+                        .setSocketTimeout(1000)
+                        .setConnectionRequestTimeout(1000)
+                        .build())
+                .build();
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    /**
+     * @Title: closeIdleConnections
+     * @Description:
+     * Close connections which are expired or idle for longer than idleTime.
+     * @param idleTime: milliseconds
+     * void
+     */
+    public static void closeIdleConnections(long idleTime) {
+        CONNECTION_MANAGER.closeExpiredConnections();
+        CONNECTION_MANAGER.closeIdleConnections(idleTime, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @Title: probe
+     * @Description:
+     * Send OPTIONS request to url, which keeps the pooled connection to url warm.
+     * @return
+     * boolean: true if url responded, whatever the status code is
+     */
+    public boolean probe() {
+        try {
+            restTemplate.optionsForAllow(url + "/MasterInfo");
+            return true;
+        } catch (RestClientResponseException e) {
+            return true;
+        } catch (ResourceAccessException e) {
+            logger.debug("Failed to probe {}.\nDetail:{}", url, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * @Title: observe
+     * @Description:
+     * Record duration and result of push in metrics.
+     * @param info
+     * @param start: by System.nanoTime()
+     * @param statusCode: -1 if failed to access url
+     * void
+     */
+    private static void observe(String info, long start, int statusCode) {
+        String result = statusCode < 0 ? "failed" : (statusCode >= 200 && statusCode < 300 ? "ok" : "error");
+        Metrics.PUSH_DURATION.labels(info).observeSince(start);
+        Metrics.PUSH_TOTAL.labels(info, result).inc();
     }
 
     /**
@@ -52,37 +129,63 @@ public class CMRestAPIClient {
      * @Description:
      * Push newest master info (ip and port) to url.
      * @param masterIpPort
-     * void
+     * @return
+     * int: http status code, -1 if failed to access url
      */
-    public void pushMasterInfo(String masterInfo) {
-        logger.info("Sendind newest master info({}) to {}", masterInfo, url);
+    public int pushMasterInfo(String masterInfo) {
+        long start = System.nanoTime();
+        int statusCode = doPushMasterInfo(masterInfo);
+        observe("MasterInfo", start, statusCode);
+        return statusCode;
+    }
+
+    private int doPushMasterInfo(String masterInfo) {
+        logger.info("Sending newest master info({}) to {}", masterInfo, url);
         try {
             HttpEntity<String> entity = new HttpEntity<>(masterInfo);
             ResponseEntity<String> response = restTemplate.exchange(url + "/MasterInfo", HttpMethod.PUT, entity, String.class);
             logger.info("StatusCode: {}", response.getStatusCode());
             logger.info("Msg: {}", response.getBody());
-        } catch (ResourceAccessException | HttpClientErrorException e) {
-            logger.error("Failed to send newest master info.\nDetail:{}", url, e.getMessage());
+            logger.info("Send newest master info successfully.");
+            return response.getStatusCodeValue();
+        } catch (RestClientResponseException e) {
+            logger.error("Failed to send newest master info to {}.\nDetail:{}", url, e.getMessage());
+            return e.getRawStatusCode();
+        } catch (ResourceAccessException e) {
+            logger.error("Failed to send newest master info to {}.\nDetail:{}", url, e.getMessage());
         }
-        logger.info("Send newest master info successfully.");
+        return -1;
     }
 
     /**
      * @Title: pushStandbysInfo
      * @Description:
      * Push current standbys' info(ip:port) to url.
-     * void
+     * @return
+     * int: http status code, -1 if failed to access url
      */
-    public void pushStandbysInfo(String standbyInfo) {
-        logger.info("Sendind newest standby info({}) to {}", standbyInfo, url);
+    public int pushStandbysInfo(String standbyInfo) {
+        long start = System.nanoTime();
+        int statusCode = doPushStandbysInfo(standbyInfo);
+        observe("StandbyInfo", start, statusCode);
+        return statusCode;
+    }
+
+    private int doPushStandbysInfo(String standbyInfo) {
+        logger.info("Sending newest standby info({}) to {}", standbyInfo, url);
         try {
             HttpEntity<String> entity = new HttpEntity<>(standbyInfo);
             ResponseEntity<String> response = restTemplate.exchange(url + "/StandbyInfo", HttpMethod.PUT, entity, String.class);
             logger.info("Response status code: {}", response.getStatusCode());
             logger.info("Response msg: {}", response.getBody());
-        } catch (ResourceAccessException | HttpClientErrorException e) {
-            logger.error("Failed to send newest standby info.\nDetail:{}", url, e.getMessage());
+            logger.info("Send newest standby info successfully.");
+            return response.getStatusCodeValue();
+        } catch (RestClientResponseException e) {
+            logger.error("Failed to send newest standby info to {}.\nDetail:{}", url, e.getMessage());
+            return e.getRawStatusCode();
+        } catch (ResourceAccessException e) {
+            logger.error("Failed to send newest standby info to {}.\nDetail:{}", url, e.getMessage());
         }
-        logger.info("Send newest standby info successfully.");
+        return -1;
     }
 }
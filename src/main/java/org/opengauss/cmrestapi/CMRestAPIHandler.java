@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.opengauss.cmrestapi.ClientIpResolver.HeaderSource;
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * @Title: CMRestAPIHandler
+ * @author: agent
+ * @Description:
+ * Request handling shared by servers: CMRestAPIServer on Spring MVC and LiteHttpServer.
+ * Servers parse requests, call the handler and send the returned ApiResponse.
+ * Watch requests complete when cluster status changes or timeout.
+ * Requests which run commands complete when the commands finish, no thread waits for child processes.
+ * Created on: 2026/10/17
+ */
+public class CMRestAPIHandler {
+    static final String SNAPSHOT_AGE_HEADER = "X-Snapshot-Age";
+    static final String STATUS_VERSION_HEADER = "X-Status-Version";
+    static final int HTTP_MULTI_STATUS = 207;
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String CONTEXT_PATH = "/CMRestAPI/";
+    private static final String OP_PUT = "put";
+    private static final String OP_DELETE = "delete";
+    private static final String ALL_NODES = "all";
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final String RETRY_AFTER = "1";
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("cmrestapi.recvAddr.maxBatchSize", 1000);
+    private static final long WATCH_TIMEOUT = Long.getLong("cmrestapi.watch.timeout", 30000L);
+    private static final long MAX_WATCH_TIMEOUT = Long.getLong("cmrestapi.watch.maxTimeout", 300000L);
+    private static final ScheduledExecutorService WATCH_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "WatchTimer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Logger logger = LoggerFactory.getLogger(CMRestAPIHandler.class);
+
+    /**
+     * @Title: authorize
+     * @Description:
+     * Check whether request of client can be served.
+     * @param clientIp
+     * @param path: request path, such as /CMRestAPI/ClusterStatus
+     * @return
+     * ApiResponse: null if allowed, 503 before CMRestAPI is ready, 401 if client is not in white list,
+     * 429 if client exceeds rate limit of the route
+     */
+    ApiResponse authorize(String clientIp, String path) {
+        if (!CMRestAPI.isReady) {
+            return ApiResponse.text(HttpURLConnection.HTTP_UNAVAILABLE, "503 SERVICE_UNAVAILABLE")
+                    .header(RETRY_AFTER_HEADER, RETRY_AFTER);
+        }
+        if (!CMRestAPI.appWhiteList.isAllowed(clientIp)) {
+            logger.error("401 UNAUTHORIZED client {}", clientIp);
+            return ApiResponse.text(HttpURLConnection.HTTP_UNAUTHORIZED, "401 UNAUTHORIZED");
+        }
+        String route = getRoute(path);
+        long wait = CMRestAPI.rateLimiter.acquire(clientIp, route);
+        if (wait > 0) {
+            Metrics.HTTP_THROTTLED.labels(route).inc();
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(wait) + 1;
+            return ApiResponse.text(HTTP_TOO_MANY_REQUESTS, "{\"msg\": \"Too many " + route
+                    + " requests, retry after " + waitMillis + "ms!\"}")
+                    .header(RETRY_AFTER_HEADER, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999)));
+        }
+        return null;
+    }
+
+    /**
+     * @Title: getRoute
+     * @Description:
+     * Get route of request path, such as ClusterStatus for /CMRestAPI/ClusterStatus.
+     * @param path
+     * @return
+     * String
+     */
+    private static String getRoute(String path) {
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        int start = path.startsWith(CONTEXT_PATH) ? CONTEXT_PATH.length() : 0;
+        return start <= end ? path.substring(start, end) : "";
+    }
+
+    /**
+     * @Title: getJsonResponse
+     * @Description:
+     * Build response of serialized model. 304 is returned if client already has it,
+     * else body is sent gzip compressed if client accepts. Either representation has its own ETag.
+     * @param headers: request headers
+     * @param payload
+     * @return
+     * ApiResponse
+     */
+    private ApiResponse getJsonResponse(HeaderSource headers, JsonPayload payload) {
+        boolean isGzip = JsonPayload.acceptsGzip(headers.getHeader("Accept-Encoding"));
+        if (payload.matches(headers.getHeader("If-None-Match"))) {
+            return ApiResponse.empty(HttpURLConnection.HTTP_NOT_MODIFIED)
+                    .header("ETag", isGzip ? payload.getGzipEtag() : payload.getEtag())
+                    .header("Vary", "Accept-Encoding");
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(new String(payload.getJson(), StandardCharsets.UTF_8));
+        }
+        if (isGzip) {
+            return new ApiResponse(HttpURLConnection.HTTP_OK, ApiResponse.JSON_UTF8, payload.getGzipJson())
+                    .header("ETag", payload.getGzipEtag())
+                    .header("Vary", "Accept-Encoding")
+                    .header("Content-Encoding", "gzip");
+        }
+        return new ApiResponse(HttpURLConnection.HTTP_OK, ApiResponse.JSON_UTF8, payload.getJson())
+                .header("ETag", payload.getEtag())
+                .header("Vary", "Accept-Encoding");
+    }
+
+    private ApiResponse getErrorResponse(String msg) {
+        return ApiResponse.text(HttpURLConnection.HTTP_INTERNAL_ERROR, msg);
+    }
+
+    /**
+     * @Title: getCmdErrorResponse
+     * @Description:
+     * Build response of failed command.
+     * @param cmdResult
+     * @param action: put, delete, query etc.
+     * @return
+     * ApiResponse: null if command succeeded
+     */
+    private ApiResponse getCmdErrorResponse(CmdResult cmdResult, String action) {
+        if (cmdResult == null) {
+            return getErrorResponse("{\"msg\": \"Exec " + action + " command failed!\"}");
+        }
+        if (cmdResult.statusCode == 124) {
+            return getErrorResponse("{\"msg\": \"Exec " + action + " command timeout!\"}");
+        }
+        if (cmdResult.statusCode != 0) {
+            return getErrorResponse(cmdResult.resultString);
+        }
+        return null;
+    }
+
+    /**
+     * @Title: getCmdErrorResponse
+     * @Description:
+     * Build response of failed asynchronous command. 503 with Retry-After is returned
+     * if the command was rejected because too many commands are running.
+     * @param cmdResult
+     * @param exp: exception of command future
+     * @param action: put, delete, query etc.
+     * @return
+     * ApiResponse: null if command succeeded
+     */
+    private ApiResponse getCmdErrorResponse(CmdResult cmdResult, Throwable exp, String action) {
+        if (CmdLimiter.isRejected(exp)) {
+            return ApiResponse.text(HttpURLConnection.HTTP_UNAVAILABLE,
+                    "{\"msg\": \"Too many commands are running, retry later!\"}")
+                    .header(RETRY_AFTER_HEADER, RETRY_AFTER);
+        }
+        if (exp != null) {
+            logger.error("Exception happend when excute {} command.\nDetail:", action, exp);
+        }
+        return getCmdErrorResponse(exp == null ? cmdResult : null, action);
+    }
+
+    /**
+     * @Title: getQueryErrorResponse
+     * @Description:
+     * Build response of failed cluster status refresh.
+     * @return
+     * ApiResponse
+     */
+    private ApiResponse getQueryErrorResponse() {
+        ApiResponse response = getCmdErrorResponse(CMRestAPI.clusterStatusRefresher.getLastFailure(), "query");
+        return response == null ? getErrorResponse("{\"msg\": \"Exec query command failed!\"}") : response;
+    }
+
+    static long getWatchTimeout(long timeout) {
+        return timeout <= 0 ? WATCH_TIMEOUT : Math.min(timeout, MAX_WATCH_TIMEOUT);
+    }
+
+    /**
+     * @Title: watch
+     * @Description:
+     * Wait until version of cluster status becomes different from the given one or timeout,
+     * then build response of the latest snapshot.
+     * @param version
+     * @param timeout: ms, default cmrestapi.watch.timeout if <= 0
+     * @param responder: builds response of snapshot, which may be null if it is stale
+     * @return
+     * CompletableFuture<ApiResponse>
+     */
+    private CompletableFuture<ApiResponse> watch(long version, long timeout,
+            Function<ClusterStatusRefresher.Snapshot, ApiResponse> responder) {
+        CompletableFuture<ClusterStatusRefresher.Snapshot> change =
+                CMRestAPI.clusterStatusRefresher.awaitChange(version);
+        if (change.isDone()) {
+            return change.thenApply(responder);
+        }
+        ScheduledFuture<?> timer = WATCH_TIMER.schedule(() -> {
+            change.complete(CMRestAPI.clusterStatusRefresher.getSnapshot());
+        }, getWatchTimeout(timeout), TimeUnit.MILLISECONDS);
+        return change.thenApply(snapshot -> {
+            timer.cancel(false);
+            return responder.apply(snapshot);
+        });
+    }
+
+    /**
+     * @Title: getClusterStatus
+     * @Description:
+     * Get cluster status from snapshot.
+     * @param clientIp
+     * @param headers
+     * @return
+     * ApiResponse
+     */
+    ApiResponse getClusterStatus(String clientIp, HeaderSource headers) {
+        logger.info("Received get cluster status request from {}", clientIp);
+        return getClusterStatusResponse(headers, CMRestAPI.clusterStatusRefresher.getSnapshot());
+    }
+
+    /**
+     * @Title: watchClusterStatus
+     * @Description:
+     * Wait until version of cluster status becomes different from the given one or timeout,
+     * then return current cluster status. Version of returned cluster status is in header X-Status-Version.
+     * @param clientIp
+     * @param headers
+     * @param version: version got last time, 0 if none
+     * @param timeout: ms, default cmrestapi.watch.timeout if <= 0
+     * @return
+     * CompletableFuture<ApiResponse>
+     */
+    CompletableFuture<ApiResponse> watchClusterStatus(String clientIp, HeaderSource headers, long version,
+            long timeout) {
+        logger.info("Received watch cluster status request from {}, version {}", clientIp, version);
+        return watch(version, timeout, snapshot -> getClusterStatusResponse(headers, snapshot));
+    }
+
+    private ApiResponse getClusterStatusResponse(HeaderSource headers, ClusterStatusRefresher.Snapshot snapshot) {
+        if (snapshot == null) {
+            return getQueryErrorResponse();
+        }
+        return getJsonResponse(headers, snapshot.payload)
+                .header(SNAPSHOT_AGE_HEADER, String.valueOf(snapshot.getAge()))
+                .header(STATUS_VERSION_HEADER, String.valueOf(snapshot.version));
+    }
+
+    /**
+     * @Title: getNodeStatus
+     * @Description:
+     * Get node status from snapshot. Return status of current node if nodeId is not provided,
+     * status list of the given nodes if nodeId is a comma separated list such as 1,2,5,
+     * and status list of all nodes if all is true or nodeId is all.
+     * @param clientIp
+     * @param headers
+     * @param nodeId
+     * @param all
+     * @return
+     * ApiResponse
+     */
+    ApiResponse getNodeStatus(String clientIp, HeaderSource headers, String nodeId, boolean all) {
+        logger.info("Received get node status request from {}", clientIp);
+        return getNodeStatusResponse(headers, CMRestAPI.clusterStatusRefresher.getSnapshot(), nodeId, all);
+    }
+
+    /**
+     * @Title: watchNodeStatus
+     * @Description:
+     * Wait until version of cluster status becomes different from the given one or timeout,
+     * then return current node status. Version of cluster status is in header X-Status-Version.
+     * @param clientIp
+     * @param headers
+     * @param nodeId: same as getNodeStatus
+     * @param all: same as getNodeStatus
+     * @param version: version got last time, 0 if none
+     * @param timeout: ms, default cmrestapi.watch.timeout if <= 0
+     * @return
+     * CompletableFuture<ApiResponse>
+     */
+    CompletableFuture<ApiResponse> watchNodeStatus(String clientIp, HeaderSource headers, String nodeId,
+            boolean all, long version, long timeout) {
+        logger.info("Received watch node status request from {}, version {}", clientIp, version);
+        return watch(version, timeout, snapshot -> getNodeStatusResponse(headers, snapshot, nodeId, all));
+    }
+
+    private ApiResponse getNodeStatusResponse(HeaderSource headers, ClusterStatusRefresher.Snapshot snapshot,
+            String nodeIds, boolean all) {
+        if (snapshot == null) {
+            return getQueryErrorResponse();
+        }
+        JsonPayload payload = null;
+        if (all || ALL_NODES.equalsIgnoreCase(nodeIds)) {
+            payload = snapshot.getNodesPayload();
+        } else if (nodeIds == null || nodeIds.indexOf(',') < 0) {
+            int nodeId = parseNodeId(nodeIds);
+            if (nodeId < 0) {
+                return getBadNodeIdResponse(nodeIds);
+            }
+            payload = snapshot.getNodePayload(nodeId == 0 ? CMRestAPI.nodeId : nodeId);
+            if (payload == null) {
+                return getNodeNotFoundResponse(nodeId);
+            }
+        } else {
+            List<NodeStatus> nodesStatus = new ArrayList<>();
+            for (String item : nodeIds.split(",")) {
+                int nodeId = parseNodeId(item);
+                if (nodeId <= 0) {
+                    return getBadNodeIdResponse(item);
+                }
+                NodeStatus nodeStatus = snapshot.getNodeStatus(nodeId);
+                if (nodeStatus == null) {
+                    return getNodeNotFoundResponse(nodeId);
+                }
+                nodesStatus.add(nodeStatus);
+            }
+            payload = JsonPayload.of(nodesStatus);
+        }
+        return getJsonResponse(headers, payload)
+                .header(SNAPSHOT_AGE_HEADER, String.valueOf(snapshot.getAge()))
+                .header(STATUS_VERSION_HEADER, String.valueOf(snapshot.version));
+    }
+
+    /**
+     * @Title: parseNodeId
+     * @Description:
+     * Parse node id parameter, empty means current node.
+     * @param nodeId
+     * @return
+     * int: 0 if empty, -1 if invalid
+     */
+    private static int parseNodeId(String nodeId) {
+        if (nodeId == null || nodeId.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            int id = Integer.parseInt(nodeId.trim());
+            return id < 0 ? -1 : id;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private ApiResponse getBadNodeIdResponse(String nodeId) {
+        return ApiResponse.text(HttpURLConnection.HTTP_BAD_REQUEST, "{\"msg\": \"Invalid nodeId " + nodeId + "!\"}");
+    }
+
+    private ApiResponse getNodeNotFoundResponse(int nodeId) {
+        return ApiResponse.text(HttpURLConnection.HTTP_NOT_FOUND, "{\"msg\": \"Node " + nodeId + " not found!\"}");
+    }
+
+    /**
+     * @Title: getFailoverTraces
+     * @Description:
+     * Get recent role transitions of this node and timeline of pushing master info, newest first.
+     * @param clientIp
+     * @param headers
+     * @param limit: max number of traces, all traces kept if <= 0
+     * @return
+     * ApiResponse
+     */
+    ApiResponse getFailoverTraces(String clientIp, HeaderSource headers, int limit) {
+        logger.info("Received get failover traces request from {}", clientIp);
+        return getJsonResponse(headers, JsonPayload.of(CMRestAPI.failoverTraceBuffer.getRecent(limit)));
+    }
+
+    /**
+     * @Title: getMetrics
+     * @Description:
+     * Get metrics in Prometheus text format.
+     * @return
+     * ApiResponse
+     */
+    ApiResponse getMetrics() {
+        return new ApiResponse(HttpURLConnection.HTTP_OK, Metrics.CONTENT_TYPE,
+                Metrics.export().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @Title: subscribeEvents
+     * @Description:
+     * Subscribe cluster topology change events. The first event is current ClusterStatus,
+     * or the events missed since lastEventId on reconnect.
+     * @param clientIp
+     * @param sink
+     * @param lastEventId: null if none
+     * @return
+     * ClusterEventBus.Subscriber: null if there are too many subscribers
+     */
+    ClusterEventBus.Subscriber subscribeEvents(String clientIp, EventSink sink, String lastEventId) {
+        logger.info("Received subscribe events request from {}, last event id {}", clientIp, lastEventId);
+        ClusterStatusRefresher.Snapshot snapshot = CMRestAPI.clusterStatusRefresher.getSnapshot();
+        return CMRestAPI.clusterEventBus.subscribe(sink, lastEventId,
+                snapshot == null ? null : snapshot.payload.getJson());
+    }
+
+    /**
+     * @Title: registerRecvAddr
+     * @Description:
+     * If key does not exist, register the address of receiving master info, else update.
+     * key = prefix("/CMRestAPI/RecvAddrList/") + clientIp + "/" + appName.
+     * value = url
+     * Completes when the command finishes, no thread waits for it.
+     * @param clientIp
+     * @param app
+     * @param url
+     * @return
+     * CompletableFuture<ApiResponse>
+     */
+    CompletableFuture<ApiResponse> registerRecvAddr(String clientIp, String app, String url) {
+        logger.info("Received put recvaddr request from {}:{}.", clientIp, app);
+        return CMRestAPI.recvAddrRegistry.registerAsync(clientIp, app, url).handle((cmdResult, exp) -> {
+            ApiResponse response = getCmdErrorResponse(cmdResult, exp, OP_PUT);
+            return response != null ? response
+                    : ApiResponse.text(HttpURLConnection.HTTP_OK, "Register receive address successfully.");
+        });
+    }
+
+    /**
+     * @Title: unregisterRecvAddr
+     * @Description:
+     * Delete register address.
+     * key = prefix("/CMRestAPI/RecvAddrList/") + clientIp + "/" + appName.
+     * Completes when the command finishes, no thread waits for it.
+     * @param clientIp
+     * @param app
+     * @return
+     * CompletableFuture<ApiResponse>
+     */
+    CompletableFuture<ApiResponse> unregisterRecvAddr(String clientIp, String app) {
+        logger.info("Received delete RecvAddr request from {}.", clientIp);
+        return CMRestAPI.recvAddrRegistry.unregisterAsync(clientIp, app).handle((cmdResult, exp) -> {
+            ApiResponse response = getCmdErrorResponse(cmdResult, exp, OP_DELETE);
+            return response != null ? response : ApiResponse.text(HttpURLConnection.HTTP_OK, "Deleted successfully.");
+        });
+    }
+
+    /**
+     * @Title: batchRecvAddr
+     * @Description:
+     * Register, update or delete receive addresses of several apps of the client in one request.
+     * Request body is json array of entries: [{"app": "app1", "url": "http://..."},
+     * {"app": "app2", "op": "delete"}, ..], op is "put" by default.
+     * If an app appears more than once, its last entry takes effect.
+     * key = prefix("/CMRestAPI/RecvAddrList/") + clientIp + "/" + appName.
+     * Completes when commands of all entries finish, no thread waits for them.
+     * @param clientIp
+     * @param body
+     * @return
+     * CompletableFuture<ApiResponse>: json array of per entry results, status is 200 if all entries succeeded,
+     * else 207. Entries rejected because too many commands are running have status 503.
+     */
+    CompletableFuture<ApiResponse> batchRecvAddr(String clientIp, String body) {
+        logger.info("Received batch recvaddr request from {}.", clientIp);
+        RecvAddrEntry[] entries = null;
+        try {
+            entries = new Gson().fromJson(body, RecvAddrEntry[].class);
+        } catch (JsonParseException e) {
+            logger.error("Invalid batch recvaddr request from {}.\nDetail:", clientIp, e);
+        }
+        if (entries == null || entries.length > MAX_BATCH_SIZE) {
+            return CompletableFuture.completedFuture(ApiResponse.text(HttpURLConnection.HTTP_BAD_REQUEST,
+                    "{\"msg\": \"Request body should be json array of at most " + MAX_BATCH_SIZE + " entries!\"}"));
+        }
+        // submit all entries at once, so that they are coalesced into one batch
+        List<CompletableFuture<RecvAddrResult>> futures = new ArrayList<>();
+        for (RecvAddrEntry entry : entries) {
+            futures.add(submitRecvAddrEntry(clientIp, entry));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<RecvAddrResult> results = new ArrayList<>();
+            boolean allSucceeded = true;
+            boolean anyRejected = false;
+            for (CompletableFuture<RecvAddrResult> future : futures) {
+                RecvAddrResult result = future.join();
+                allSucceeded &= result.status == HttpURLConnection.HTTP_OK;
+                anyRejected |= result.status == HttpURLConnection.HTTP_UNAVAILABLE;
+                results.add(result);
+            }
+            ApiResponse response = ApiResponse.json(allSucceeded ? HttpURLConnection.HTTP_OK : HTTP_MULTI_STATUS,
+                    new Gson().toJson(results));
+            return anyRejected ? response.header(RETRY_AFTER_HEADER, RETRY_AFTER) : response;
+        });
+    }
+
+    private CompletableFuture<RecvAddrResult> submitRecvAddrEntry(String clientIp, RecvAddrEntry entry) {
+        if (entry == null) {
+            return CompletableFuture.completedFuture(
+                    new RecvAddrResult(null, null, HttpURLConnection.HTTP_BAD_REQUEST, "Invalid entry!"));
+        }
+        String app = entry.app == null ? "" : entry.app;
+        String op = entry.op == null ? OP_PUT : entry.op;
+        CompletableFuture<CmdResult> future = null;
+        if (OP_PUT.equals(op)) {
+            if (entry.url == null || entry.url.isEmpty()) {
+                return CompletableFuture.completedFuture(
+                        new RecvAddrResult(entry.app, op, HttpURLConnection.HTTP_BAD_REQUEST, "Url is required!"));
+            }
+            future = CMRestAPI.recvAddrRegistry.registerAsync(clientIp, app, entry.url);
+        } else if (OP_DELETE.equals(op)) {
+            future = CMRestAPI.recvAddrRegistry.unregisterAsync(clientIp, app);
+        } else {
+            return CompletableFuture.completedFuture(
+                    new RecvAddrResult(entry.app, op, HttpURLConnection.HTTP_BAD_REQUEST, "Unknown op!"));
+        }
+        return future.handle((cmdResult, exp) -> getRecvAddrResult(entry, op, cmdResult, exp));
+    }
+
+    private RecvAddrResult getRecvAddrResult(RecvAddrEntry entry, String op, CmdResult cmdResult, Throwable exp) {
+        if (CmdLimiter.isRejected(exp)) {
+            return new RecvAddrResult(entry.app, op, HttpURLConnection.HTTP_UNAVAILABLE,
+                    "Too many commands are running, retry later!");
+        }
+        if (exp != null) {
+            logger.error("Exception happend when excute {} command of {}.\nDetail:", op, entry.app, exp);
+            return new RecvAddrResult(entry.app, op, HttpURLConnection.HTTP_INTERNAL_ERROR,
+                    "Exec " + op + " command failed!");
+        }
+        if (cmdResult == null) {
+            return new RecvAddrResult(entry.app, op, HttpURLConnection.HTTP_INTERNAL_ERROR,
+                    "Exec " + op + " command failed!");
+        }
+        if (cmdResult.statusCode == 124) {
+            return new RecvAddrResult(entry.app, op, HttpURLConnection.HTTP_INTERNAL_ERROR,
+                    "Exec " + op + " command timeout!");
+        }
+        if (cmdResult.statusCode != 0) {
+            return new RecvAddrResult(entry.app, op, HttpURLConnection.HTTP_INTERNAL_ERROR, cmdResult.resultString);
+        }
+        return new RecvAddrResult(entry.app, op, HttpURLConnection.HTTP_OK, "Success.");
+    }
+}
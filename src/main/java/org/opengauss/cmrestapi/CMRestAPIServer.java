@@ -17,296 +17,259 @@ package org.opengauss.cmrestapi;
 import javax.servlet.http.HttpServletRequest;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
-import com.google.gson.Gson;
-import java.io.File;
-import java.net.Inet4Address;
-import java.net.UnknownHostException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * @Title: CMRestAPIServer
  * @author: xuemengen
  * @Description:
  * Server for listening request from application, manager platform etc.
+ * Requests are handled by CMRestAPIHandler, which is shared with LiteHttpServer.
+ * Requests which run commands are answered asynchronously, request threads never wait for child processes.
  * Created on: 2022/09/07
  */
 @RestController
 @RequestMapping("/CMRestAPI")
 public class CMRestAPIServer {
-    private final String UNKNOWN = "unknown";
-    private final String LOCALHOST = "127.0.0.1";
-    private final String LOCALHOST_IPV6 = "0:0:0:0:0:0:0:1";
-    private final String SEPARATOR = ",";
-    private Logger logger = LoggerFactory.getLogger(CMRestAPIServer.class);
-    private OGCmdExecuter ogCmdExcuter = new OGCmdExecuter(CMRestAPI.envFile);
-
-    private static final String[] IP_HEADER_CANDIDATES = {
-            "X-Forwarded-For",
-            "Proxy-Client-IP",
-            "WL-Proxy-Client-IP",
-            "HTTP_X_FORWARDED_FOR",
-            "HTTP_X_FORWARDED",
-            "HTTP_X_CLUSTER_CLIENT_IP",
-            "HTTP_CLIENT_IP",
-            "HTTP_FORWARDED_FOR",
-            "HTTP_FORWARDED",
-            "HTTP_VIA",
-            "REMOTE_ADDR"
-    };
+    // watch requests are completed by handler on timeout, deferred result only guards against lost completion
+    private static final long WATCH_TIMEOUT_MARGIN = 5000L;
+    private CMRestAPIHandler handler = new CMRestAPIHandler();
 
     /**
-     * @Title: NodeStatus
-     * @author: xuemengen
+     * @Title: toResponseEntity
      * @Description:
-     * Database node status.
-     * Created on: 2022/09/07
+     * Convert response of handler to ResponseEntity.
+     * @param response
+     * @return
+     * ResponseEntity<byte[]>
      */
-    class NodeStatus {
-        String nodeIp;
-        String cmServerState;
-        String dnRole;
-        String dnState;
-        public NodeStatus(String nodeIp, String cmServerState, String dnRole, String dnState) {
-            this.nodeIp = nodeIp;
-            this.cmServerState = cmServerState;
-            this.dnRole = dnRole;
-            this.dnState = dnState;
+    static ResponseEntity<byte[]> toResponseEntity(ApiResponse response) {
+        HttpHeaders headers = new HttpHeaders();
+        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+            headers.set(header.getKey(), header.getValue());
         }
+        return new ResponseEntity<>(response.body, headers, HttpStatus.valueOf(response.status));
     }
 
     /**
-     * @Title: DefResStatus
-     * @author: xuemengen
-     * @Description: Defined Resource State
-     * Created on: 2022/09/19
+     * @Title: toDeferredResult
+     * @Description:
+     * Convert asynchronous response of handler to DeferredResult, so that request thread is released
+     * at once. It times out after spring.mvc.async.request-timeout.
+     * @param future
+     * @return
+     * DeferredResult<ResponseEntity<byte[]>>
      */
-    class DefResStatus {
-        int nodeId;
-        String resName;
-        String state;
-        public DefResStatus(int nodeId, String state, String resName) {
-             this.nodeId = nodeId;
-             this.state = state;
-             this.resName = resName;
-        }
+    private static DeferredResult<ResponseEntity<byte[]>> toDeferredResult(CompletableFuture<ApiResponse> future) {
+        return toDeferredResult(future, new DeferredResult<>());
+    }
+
+    private static DeferredResult<ResponseEntity<byte[]>> toWatchResult(CompletableFuture<ApiResponse> future,
+            long timeout) {
+        return toDeferredResult(future, new DeferredResult<>(
+                CMRestAPIHandler.getWatchTimeout(timeout) + WATCH_TIMEOUT_MARGIN));
+    }
+
+    private static DeferredResult<ResponseEntity<byte[]>> toDeferredResult(CompletableFuture<ApiResponse> future,
+            DeferredResult<ResponseEntity<byte[]>> result) {
+        future.whenComplete((response, exp) -> {
+            if (exp != null) {
+                result.setErrorResult(exp);
+            } else {
+                result.setResult(toResponseEntity(response));
+            }
+        });
+        return result;
     }
 
     /**
-     * @Title: ClusterStatus
-     * @author: xuemengen
+     * @Title: getClusterStatus
      * @Description:
-     * Cluster status.
-     * Created on: 2022/09/07
+     * Receive get ClusterStatus request.
+     * @param request
+     * @return
+     * ResponseEntity<byte[]>
      */
-    class ClusterStatus {
-        String clusterState;
-        List<NodeStatus> nodesStatus;
-        List<DefResStatus> defResStatus;
+    @GetMapping("/ClusterStatus")
+    public ResponseEntity<byte[]> getClusterStatus(HttpServletRequest request) {
+        return toResponseEntity(handler.getClusterStatus(AppAuthFilter.getClientIp(request), request::getHeader));
     }
 
-    private String getClientIp(HttpServletRequest request) {
-        String ipAddress = null;
-        /* 
-         * In the multi-proxy scenario, the header is extracted to
-         * obtain the IP address list, and the first IP address is taken.
-         */
-        for (String header : IP_HEADER_CANDIDATES) {
-            String ipList = request.getHeader(header);
-            if (ipList == null || ipList.length() == 0 || UNKNOWN.equalsIgnoreCase(ipList)) {
-                continue;
-            }
-            ipAddress = ipList.split(SEPARATOR)[0];
-        }
-        
-        /* 
-         * The getRemoteAddr method is used to obtain
-         * the IP address without a proxy or SLB.
-         */
-        if (ipAddress == null || ipAddress.length() == 0 || UNKNOWN.equalsIgnoreCase(ipAddress)) {
-            ipAddress = request.getRemoteAddr();
-        }
+    /**
+     * @Title: watchClusterStatus
+     * @Description:
+     * Receive watch ClusterStatus request. The request is held until version of cluster status
+     * becomes different from the given one or timeout, then current cluster status is returned.
+     * Version of returned cluster status is in header X-Status-Version.
+     * @param request
+     * @param version: version got last time, 0 if none
+     * @param timeout: ms, default cmrestapi.watch.timeout
+     * @return
+     * DeferredResult<ResponseEntity<byte[]>>
+     */
+    @GetMapping(value = "/ClusterStatus", params = "watch=true")
+    public DeferredResult<ResponseEntity<byte[]>> watchClusterStatus(HttpServletRequest request,
+            @RequestParam(value = "version", required = false, defaultValue = "0")long version,
+            @RequestParam(value = "timeout", required = false, defaultValue = "0")long timeout) {
+        return toWatchResult(handler.watchClusterStatus(AppAuthFilter.getClientIp(request), request::getHeader,
+                version, timeout), timeout);
+    }
 
-        /* 
-         * If the local IP address is used, the local IP
-         * address is configured based on the NIC.
-         */
-        if (LOCALHOST.equals(ipAddress) || LOCALHOST_IPV6.equals(ipAddress)) {
-            try {
-                ipAddress = Inet4Address.getLocalHost().getHostAddress();
-            } catch (UnknownHostException e) {
-                ipAddress = "localhost";
-                logger.error("Error when get localhost ip.\nDetail:", e.getMessage());
-            }
-        }
-        return ipAddress;
+    /**
+     * @Title: getNodeStatus
+     * @Description:
+     * Receive get NodeStatus request, answered from cluster status snapshot.
+     * Return status of current node if nodeId is not provided, status list of the given nodes
+     * if nodeId is a comma separated list such as 1,2,5, and status list of all nodes if all is
+     * provided or nodeId is all.
+     * @param request
+     * @param nodeId
+     * @param all
+     * @return
+     * ResponseEntity<byte[]>
+     */
+    @GetMapping("/NodeStatus")
+    ResponseEntity<byte[]> getNodeStatus(HttpServletRequest request,
+            @RequestParam(value = "nodeId", required = false)String nodeId,
+            @RequestParam(value = "all", required = false)String all) {
+        return toResponseEntity(handler.getNodeStatus(AppAuthFilter.getClientIp(request), request::getHeader,
+                nodeId, all != null));
     }
 
     /**
-     * @Title: checkAppWhiteList
+     * @Title: watchNodeStatus
      * @Description:
-     * Check whether client ip is in appWhiteList.
-     * Notice: if the appWhiteListFile does not exist, the verification
-     * is not required, then return true.
+     * Receive watch NodeStatus request. The request is held until version of cluster status
+     * becomes different from the given one or timeout, then current node status is returned.
+     * Version of cluster status is in header X-Status-Version.
      * @param request
+     * @param nodeId: same as getNodeStatus
+     * @param all: same as getNodeStatus
+     * @param version: version got last time, 0 if none
+     * @param timeout: ms, default cmrestapi.watch.timeout
      * @return
-     * boolean
+     * DeferredResult<ResponseEntity<byte[]>>
      */
-    private boolean checkAppWhiteList(String clientIp) {
-        if (CMRestAPI.appWhiteListFile == null || !new File(CMRestAPI.appWhiteListFile).exists()) {
-            return true;
-        }
-        if (CMRestAPI.appWhiteListFileModified()) {
-            CMRestAPI.getAppWhiteList();
-        }
-        if (CMRestAPI.appWhiteList == null) {
-            return false;
-        }
-        return CMRestAPI.appWhiteList.contains(clientIp);
+    @GetMapping(value = "/NodeStatus", params = "watch=true")
+    DeferredResult<ResponseEntity<byte[]>> watchNodeStatus(HttpServletRequest request,
+            @RequestParam(value = "nodeId", required = false)String nodeId,
+            @RequestParam(value = "all", required = false)String all,
+            @RequestParam(value = "version", required = false, defaultValue = "0")long version,
+            @RequestParam(value = "timeout", required = false, defaultValue = "0")long timeout) {
+        return toWatchResult(handler.watchNodeStatus(AppAuthFilter.getClientIp(request), request::getHeader,
+                nodeId, all != null, version, timeout), timeout);
     }
 
     /**
-     * @Title: getClusterStatus
+     * @Title: getFailoverTraces
      * @Description:
-     * Receive get ClusterStatus request.
+     * Receive get FailoverTraces request, recent role transitions of this node and
+     * timeline of pushing master info are returned, newest first.
      * @param request
+     * @param limit: max number of traces, all traces kept if not provided
      * @return
-     * ResponseEntity<String>
+     * ResponseEntity<byte[]>
      */
-    @GetMapping("/ClusterStatus")
-    public ResponseEntity<String> getClusterStatus(HttpServletRequest request) {
-        String clientIp = getClientIp(request);
-        logger.info("Received get cluster status request from {}", clientIp);
-        if (!checkAppWhiteList(clientIp)) {
-            logger.error(HttpStatus.UNAUTHORIZED.toString() + "client " + clientIp);
-            return ResponseEntity
-                    .status(HttpStatus.UNAUTHORIZED)
-                    .body(HttpStatus.UNAUTHORIZED.toString());
-        }
-        CmdResult cmdResult = ogCmdExcuter.getClusterStatus();
-        if (cmdResult == null) {
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"msg\": \"Exec query command failed!\"}");
-        }
-        if (cmdResult.statusCode != 0) {
-            String msg = null;
-            if (cmdResult.statusCode == 124) {
-                msg = "{\"msg\": \"Exec query command timeout!\"}";
-            } else {
-                msg = cmdResult.resultString;
-            }
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(msg);
+    @GetMapping("/FailoverTraces")
+    public ResponseEntity<byte[]> getFailoverTraces(HttpServletRequest request,
+            @RequestParam(value = "limit", required = false, defaultValue = "0")int limit) {
+        return toResponseEntity(handler.getFailoverTraces(AppAuthFilter.getClientIp(request), request::getHeader,
+                limit));
+    }
+
+    /**
+     * @Title: getMetrics
+     * @Description:
+     * Receive get Metrics request, metrics are returned in Prometheus text format.
+     * @return
+     * ResponseEntity<byte[]>
+     */
+    @GetMapping("/Metrics")
+    public ResponseEntity<byte[]> getMetrics() {
+        return toResponseEntity(handler.getMetrics());
+    }
+
+    /**
+     * @Title: EmitterEventSink
+     * @author: agent
+     * @Description: Event subscriber connection held by a ResponseBodyEmitter.
+     * Created on: 2026/10/17
+     */
+    private static class EmitterEventSink implements EventSink {
+        private final ResponseBodyEmitter emitter;
+
+        EmitterEventSink(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
         }
-        ClusterStatus clusterStatus = new ClusterStatus();
-        String[] nodesStatus = cmdResult.resultString.split("\\s+-{70,}\\s+");
-        int startPos = 0;
-        if (nodesStatus[0].contains("Defined Resource State")) {
-            startPos = 1;
-            // get defined resource state
-            clusterStatus.defResStatus = new ArrayList<DefResStatus>();
-            String defResStatusString = nodesStatus[0].split("\\s+-+\\s+")[1];
-            String[] resStateList = defResStatusString.split("\\r?\\n");
-            for (String resState : resStateList) {
-                if (!resState.trim().isEmpty()) {
-                    String[] items = resState.split("\\s+");
-                    int nodeId = Integer.parseInt(items[0]);
-                    String resName = items[2];
-                    String state = items[4];
-                    clusterStatus.defResStatus.add(new DefResStatus(nodeId, state, resName));
-                }
+
+        @Override
+        public void send(byte[] frame) throws IOException {
+            try {
+                emitter.send(frame, MediaType.TEXT_EVENT_STREAM);
+            } catch (IllegalStateException e) {
+                // completed by container after the connection was closed
+                throw new IOException(e.getMessage(), e);
             }
-        } else {
-            clusterStatus.defResStatus = null;
         }
-        String clusterState = CMRestAPI.matchRegex("cluster_state.*: (.*)\\s+", nodesStatus[startPos]);
-        clusterStatus.clusterState = clusterState;
-        clusterStatus.nodesStatus = new ArrayList<NodeStatus>();
-        for(int i = startPos + 1; i < nodesStatus.length; ++i) {
-            if (nodesStatus[i] != null && !nodesStatus[i].trim().isEmpty()) {
-                String nodeIp = CMRestAPI.matchRegex("node_ip.*: (.*)\\s+", nodesStatus[i]);
-                String cmServerState = CMRestAPI.matchRegex("type.*CMServer\\s+instance_state.*: (.*)\\s+", nodesStatus[i]);
-                String dnRole = CMRestAPI.matchRegex("type.*Datanode\\s+instance_state.*: (.*)\\s+", nodesStatus[i]);
-                String dnState = CMRestAPI.matchRegex("HA_state.*: (.*)\\s+", nodesStatus[i]);
-                clusterStatus.nodesStatus.add(new NodeStatus(nodeIp, cmServerState, dnRole, dnState));
+
+        @Override
+        public void close() {
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // already completed
             }
         }
-        
-        Gson clusterGson = new Gson();
-        String result = clusterGson.toJson(clusterStatus);
-        logger.info(result);
-        return ResponseEntity
-                .status(HttpStatus.OK)
-                .body(result);
     }
 
     /**
-     * @Title: getNodeStatus
+     * @Title: subscribeEvents
      * @Description:
-     * Receive get NodeStatus request. Return status of current node if nodeId is not provided.
+     * Receive subscribe events request. Cluster topology change events are streamed as
+     * server-sent events: PrimaryChanged, StandbysChanged, NodeStateChanged and ResourceStateChanged.
+     * The first event is current ClusterStatus, or the events missed since Last-Event-ID on reconnect.
      * @param request
+     * @param lastEventId
      * @return
-     * ResponseEntity<String>
+     * ResponseEntity<ResponseBodyEmitter>
      */
-    @GetMapping("/NodeStatus")
-    ResponseEntity<String> getNodeStatus(HttpServletRequest request,
-            @RequestParam(value="nodeId", required = false, defaultValue = "0")int nodeId) {
-        String clientIp = getClientIp(request);
-        logger.info("Received get node status request from {}", clientIp);
-        if (!checkAppWhiteList(clientIp)) {
-            logger.error(HttpStatus.UNAUTHORIZED.toString() + "client " + clientIp);
+    @GetMapping("/Events")
+    public ResponseEntity<ResponseBodyEmitter> subscribeEvents(HttpServletRequest request,
+            @RequestHeader(value = "Last-Event-ID", required = false)String lastEventId) {
+        // never time out, dead subscribers are detected by heartbeat
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+        ClusterEventBus.Subscriber subscriber = handler.subscribeEvents(AppAuthFilter.getClientIp(request),
+                new EmitterEventSink(emitter), lastEventId);
+        if (subscriber == null) {
             return ResponseEntity
-                    .status(HttpStatus.UNAUTHORIZED)
-                    .body(HttpStatus.UNAUTHORIZED.toString());
-        }
-        if (nodeId == 0) {
-            nodeId = CMRestAPI.nodeId;
+                    .status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .build();
         }
-        CmdResult cmdResult = ogCmdExcuter.getNodeStatus(nodeId);
-        if (cmdResult == null) {
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"msg\": \"Exec query command failed!\"}");
-        }
-        if (cmdResult.statusCode != 0) {
-            String msg = null;
-            if (cmdResult.statusCode == 124) {
-                msg = "{\"msg\": \"Exec query command timeout!\"}";
-            } else {
-                msg = cmdResult.resultString;
-            }
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(msg);
-        }
-        NodeStatus nodeStatus = null;
-        if (cmdResult.resultString != null && !cmdResult.resultString.trim().isEmpty()) {
-            String nodeIp = CMRestAPI.matchRegex("node_ip.*: (.*)\\s+", cmdResult.resultString);
-            String cmServerState = CMRestAPI.matchRegex("type.*CMServer\\s+instance_state.*: (.*)\\s+", cmdResult.resultString);
-            String dnRole = CMRestAPI.matchRegex("type.*Datanode\\s+instance_state.*: (.*)\\s+", cmdResult.resultString);
-            String dnState = CMRestAPI.matchRegex("HA_state.*: (.*)\\s+", cmdResult.resultString);
-            nodeStatus = new NodeStatus(nodeIp, cmServerState, dnRole, dnState);
-        }
-        
-        Gson clusterGson = new Gson();
-        String result = clusterGson.toJson(nodeStatus);
-        logger.info(result);
+        emitter.onCompletion(() -> CMRestAPI.clusterEventBus.unsubscribe(subscriber));
+        emitter.onTimeout(() -> CMRestAPI.clusterEventBus.unsubscribe(subscriber));
+        emitter.onError(exp -> CMRestAPI.clusterEventBus.unsubscribe(subscriber));
         return ResponseEntity
                 .status(HttpStatus.OK)
-                .body(result);
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .body(emitter);
     }
 
     /**
@@ -319,39 +282,13 @@ public class CMRestAPIServer {
      * @param url
      * @param app
      * @return
-     * ResponseEntity<String>
+     * DeferredResult<ResponseEntity<byte[]>>
      */
     @PutMapping("/RecvAddr")
-    public ResponseEntity<String> registerOrUpdateRecvAddr(HttpServletRequest request, @RequestParam(value = "url")String url,
+    public DeferredResult<ResponseEntity<byte[]>> registerOrUpdateRecvAddr(HttpServletRequest request,
+            @RequestParam(value = "url")String url,
             @RequestParam(value = "app", required = false, defaultValue = "")String app) {
-        String clientIp = getClientIp(request);
-        logger.info("Received put recvaddr request from {}:{}.", clientIp, app);
-        if (!checkAppWhiteList(clientIp)) {
-            logger.error(HttpStatus.UNAUTHORIZED.toString() + "client " + clientIp);
-            return ResponseEntity
-                    .status(HttpStatus.UNAUTHORIZED)
-                    .body(HttpStatus.UNAUTHORIZED.toString());
-        }
-        CmdResult cmdResult = ogCmdExcuter.saveRecvAddr(clientIp, app, url);
-        if (cmdResult == null) {
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"msg\": \"Exec put command failed!\"}");
-        }
-        if (cmdResult.statusCode != 0) {
-            String msg = null;
-            if (cmdResult.statusCode == 124) {
-                msg = "{\"msg\": \"Exec put command timeout!\"}";
-            } else {
-                msg = cmdResult.resultString;
-            }
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(msg);
-        }
-        return ResponseEntity
-                .status(HttpStatus.OK)
-                .body("Register receive address successfully.");
+        return toDeferredResult(handler.registerRecvAddr(AppAuthFilter.getClientIp(request), app, url));
     }
 
     /**
@@ -362,38 +299,29 @@ public class CMRestAPIServer {
      * @param request
      * @param app
      * @return
-     * ResponseEntity<String>
+     * DeferredResult<ResponseEntity<byte[]>>
      */
     @DeleteMapping("/RecvAddr")
-    public ResponseEntity<String> deleteRegisterAddr(HttpServletRequest request,
+    public DeferredResult<ResponseEntity<byte[]>> deleteRegisterAddr(HttpServletRequest request,
             @RequestParam(value = "app", required = false, defaultValue = "")String app) {
-        String clientIp = getClientIp(request);
-        logger.info("Received delete RecvAddr request from {}.", clientIp);
-        if (!checkAppWhiteList(clientIp)) {
-            logger.error(HttpStatus.UNAUTHORIZED.toString() + "client " + clientIp);
-            return ResponseEntity
-                    .status(HttpStatus.UNAUTHORIZED)
-                    .body(HttpStatus.UNAUTHORIZED.toString());
-        }
-        CmdResult cmdResult = ogCmdExcuter.deleteRecvAddr(clientIp, app);
-        if (cmdResult == null) {
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"msg\": \"Exec delete command failed!\"}");
-        }
-        if (cmdResult.statusCode != 0) {
-            String msg = null;
-            if (cmdResult.statusCode == 124) {
-                msg = "{\"msg\": \"Exec delete command timeout!\"}";
-            } else {
-                msg = cmdResult.resultString;
-            }
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(msg);
-        }
-        return ResponseEntity
-                .status(HttpStatus.OK)
-                .body("Deleted successfully.");
+        return toDeferredResult(handler.unregisterRecvAddr(AppAuthFilter.getClientIp(request), app));
+    }
+
+    /**
+     * @Title: batchRecvAddr
+     * @Description:
+     * Register, update or delete receive addresses of several apps of the client in one request.
+     * Request body is json array of entries: [{"app": "app1", "url": "http://..."},
+     * {"app": "app2", "op": "delete"}, ..], op is "put" by default.
+     * @param request
+     * @param body
+     * @return
+     * DeferredResult<ResponseEntity<byte[]>>: json array of per entry results, status is 200 if
+     * all entries succeeded, else 207.
+     */
+    @PostMapping("/RecvAddrBatch")
+    public DeferredResult<ResponseEntity<byte[]>> batchRecvAddr(HttpServletRequest request,
+            @RequestBody String body) {
+        return toDeferredResult(handler.batchRecvAddr(AppAuthFilter.getClientIp(request), body));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.net.Inet4Address;
+import java.net.UnknownHostException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: ClientIpResolver
+ * @author: agent
+ * @Description:
+ * Resolve ip of client from trusted proxy headers or remote address.
+ * Trusted headers are checked in order and the first address of the first present one is taken.
+ * They can be set by system property cmrestapi.auth.trustedHeaders as a comma separated list,
+ * an empty list means proxies are not trusted and only remote address is used.
+ * Loopback clients are reported with the address of local host, which is resolved once.
+ * Created on: 2026/10/17
+ */
+public class ClientIpResolver {
+    private static final String UNKNOWN = "unknown";
+    private static final String LOCALHOST = "127.0.0.1";
+    private static final String LOCALHOST_IPV6 = "0:0:0:0:0:0:0:1";
+    private static final String LOCALHOST_IPV6_SHORT = "::1";
+    private static final String[] DEFAULT_TRUSTED_HEADERS = {
+            "X-Forwarded-For",
+            "Proxy-Client-IP",
+            "WL-Proxy-Client-IP",
+            "HTTP_X_FORWARDED_FOR",
+            "HTTP_X_FORWARDED",
+            "HTTP_X_CLUSTER_CLIENT_IP",
+            "HTTP_CLIENT_IP",
+            "HTTP_FORWARDED_FOR",
+            "HTTP_FORWARDED",
+            "HTTP_VIA",
+            "REMOTE_ADDR"
+    };
+    private final String[] trustedHeaders;
+    private final String localAddress;
+    private Logger logger = LoggerFactory.getLogger(ClientIpResolver.class);
+
+    public ClientIpResolver() {
+        String headers = System.getProperty("cmrestapi.auth.trustedHeaders");
+        if (headers == null) {
+            trustedHeaders = DEFAULT_TRUSTED_HEADERS;
+        } else if (headers.trim().isEmpty()) {
+            trustedHeaders = new String[0];
+        } else {
+            trustedHeaders = headers.trim().split("\\s*,\\s*");
+        }
+        localAddress = resolveLocalAddress();
+        logger.info("Trusted proxy headers: {}, local address: {}.", String.join(",", trustedHeaders), localAddress);
+    }
+
+    private String resolveLocalAddress() {
+        try {
+            return Inet4Address.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            logger.error("Error when get localhost ip.\nDetail:", e);
+            return "localhost";
+        }
+    }
+
+    /**
+     * @Title: HeaderSource
+     * @author: agent
+     * @Description: Request headers of the server implementation in use.
+     * Created on: 2026/10/17
+     */
+    public interface HeaderSource {
+        String getHeader(String name);
+    }
+
+    /**
+     * @Title: resolve
+     * @Description:
+     * Resolve client ip of request.
+     * @param headers
+     * @param remoteAddr
+     * @return
+     * String
+     */
+    public String resolve(HeaderSource headers, String remoteAddr) {
+        String ipAddress = null;
+        /*
+         * In the multi-proxy scenario, the header is extracted to
+         * obtain the IP address list, and the first IP address is taken.
+         */
+        for (String header : trustedHeaders) {
+            ipAddress = getFirstAddress(headers.getHeader(header));
+            if (ipAddress != null) {
+                break;
+            }
+        }
+        if (ipAddress == null) {
+            ipAddress = remoteAddr;
+        }
+        if (LOCALHOST.equals(ipAddress) || LOCALHOST_IPV6.equals(ipAddress)
+                || LOCALHOST_IPV6_SHORT.equals(ipAddress)) {
+            return localAddress;
+        }
+        return ipAddress;
+    }
+
+    /**
+     * @Title: getFirstAddress
+     * @Description:
+     * Get first address of a comma separated address list without splitting it.
+     * The header value itself is returned if it holds a single address.
+     * @param value
+     * @return
+     * String: null if value is empty or the first address is unknown
+     */
+    static String getFirstAddress(String value) {
+        if (value == null) {
+            return null;
+        }
+        int end = value.indexOf(',');
+        if (end < 0) {
+            end = value.length();
+        }
+        int begin = 0;
+        while (begin < end && value.charAt(begin) == ' ') {
+            begin++;
+        }
+        while (end > begin && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int length = end - begin;
+        if (length == 0 || (length == UNKNOWN.length() && value.regionMatches(true, begin, UNKNOWN, 0, length))) {
+            return null;
+        }
+        return length == value.length() ? value : value.substring(begin, end);
+    }
+}
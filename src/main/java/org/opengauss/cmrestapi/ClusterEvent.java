@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+/**
+ * @Title: ClusterEvent
+ * @author: agent
+ * @Description:
+ * Cluster topology change event.
+ * version: sequence number of event, increasing from 1 in one run of CMRestAPI.
+ * type: PrimaryChanged, StandbysChanged, NodeStateChanged or ResourceStateChanged.
+ * timestamp: ms since epoch.
+ * Created on: 2026/10/17
+ */
+class ClusterEvent {
+    long version;
+    String type;
+    long timestamp;
+    Object data;
+    public ClusterEvent(long version, String type, long timestamp, Object data) {
+        this.version = version;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.data = data;
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: ClusterEventBus
+ * @author: agent
+ * @Description:
+ * Publish cluster topology change events to subscribers as server-sent events.
+ * Every event is serialized once, then queued to each subscriber's bounded buffer and
+ * written out by a small dispatcher pool. A subscriber whose buffer is full is considered
+ * too slow and evicted. Writes block, so a write not done within the write timeout is
+ * interrupted and its subscriber evicted as well, stalled connections can hold dispatcher
+ * threads and delay events of others for no longer than that.
+ * Recent events are kept, so that a subscriber reconnecting with Last-Event-ID gets the
+ * events it missed. Otherwise it gets current cluster status as the first event.
+ * Event id is "epoch-version", epoch identifies this run of CMRestAPI, so that an id got
+ * from another node or an earlier run is never taken for one of this run.
+ * Following system properties can be set:
+ * cmrestapi.events.bufferSize: events buffered per subscriber, default 256.
+ * cmrestapi.events.maxSubscribers: default 10000.
+ * cmrestapi.events.threads: dispatcher threads, default 8.
+ * cmrestapi.events.heartbeatInterval: ms, default 15000.
+ * cmrestapi.events.writeTimeout: ms, default 5000.
+ * cmrestapi.events.historySize: events kept for reconnecting subscribers, default 256.
+ * Created on: 2026/10/17
+ */
+public class ClusterEventBus {
+    public static final String PRIMARY_CHANGED = "PrimaryChanged";
+    public static final String STANDBYS_CHANGED = "StandbysChanged";
+    public static final String NODE_STATE_CHANGED = "NodeStateChanged";
+    public static final String RESOURCE_STATE_CHANGED = "ResourceStateChanged";
+    private static final String CLUSTER_STATUS = "ClusterStatus";
+    private static final String PRIMARY = "Primary";
+    private static final String STANDBY = "Standby";
+    private static final int BUFFER_SIZE = Integer.getInteger("cmrestapi.events.bufferSize", 256);
+    private static final int MAX_SUBSCRIBERS = Integer.getInteger("cmrestapi.events.maxSubscribers", 10000);
+    private static final int THREADS = Integer.getInteger("cmrestapi.events.threads", 8);
+    private static final long HEARTBEAT_INTERVAL = Long.getLong("cmrestapi.events.heartbeatInterval", 15000L);
+    private static final int HISTORY_SIZE = Integer.getInteger("cmrestapi.events.historySize", 256);
+    private static final long WRITE_TIMEOUT = Long.getLong("cmrestapi.events.writeTimeout", 5000L);
+    private static final long RECONNECT_DELAY = 1000L;
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RETRY = ("retry: " + RECONNECT_DELAY + "\n\n").getBytes(StandardCharsets.UTF_8);
+    private static final Gson GSON = new Gson();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // guards history, lastVersion and last topology, so that events are queued in version order
+    private final Object lock = new Object();
+    private final Deque<Event> history = new ArrayDeque<>();
+    private final long writeTimeout;
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private long lastVersion = 0L;
+    private String lastPrimary;
+    private List<String> lastStandbys = Collections.emptyList();
+    private ExecutorService dispatcher;
+    private ScheduledExecutorService heartbeatScheduler;
+    private Logger logger = LoggerFactory.getLogger(ClusterEventBus.class);
+
+    public ClusterEventBus() {
+        this(WRITE_TIMEOUT);
+    }
+
+    ClusterEventBus(long writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    private static class Event {
+        final long version;
+        final byte[] frame;
+
+        Event(long version, byte[] frame) {
+            this.version = version;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * @Title: Subscriber
+     * @author: agent
+     * @Description: Subscriber connection and its buffered events.
+     * Created on: 2026/10/17
+     */
+    public class Subscriber {
+        private final EventSink sink;
+        private final ArrayBlockingQueue<byte[]> buffer = new ArrayBlockingQueue<>(BUFFER_SIZE);
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile boolean closed = false;
+        // thread blocked in writing to sink and since when, guarded by this
+        private Thread writer;
+        private long writeStart;
+
+        Subscriber(EventSink sink) {
+            this.sink = sink;
+        }
+
+        private void send(byte[] frame) throws IOException {
+            synchronized (this) {
+                writer = Thread.currentThread();
+                writeStart = System.nanoTime();
+            }
+            try {
+                sink.send(frame);
+            } finally {
+                synchronized (this) {
+                    writer = null;
+                    // clear interrupt of a write that timed out, the thread is reused by the pool
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        /**
+         * @Title: interruptStalledWrite
+         * @Description:
+         * Interrupt write which has taken longer than write timeout.
+         * @param now: System.nanoTime()
+         * @return
+         * boolean: true if write was interrupted
+         */
+        private synchronized boolean interruptStalledWrite(long now) {
+            if (writer == null || now - writeStart <= TimeUnit.MILLISECONDS.toNanos(writeTimeout)) {
+                return false;
+            }
+            writer.interrupt();
+            return true;
+        }
+
+        private void offer(byte[] frame) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(frame)) {
+                logger.warn("Event subscriber is too slow, evict it.");
+                evict(this);
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            for (;;) {
+                byte[] frame = buffer.poll();
+                if (frame == null) {
+                    draining.set(false);
+                    // an event may be queued after poll but before draining was cleared
+                    if (buffer.isEmpty() || !draining.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                if (closed) {
+                    return;
+                }
+                try {
+                    send(frame);
+                } catch (IOException e) {
+                    logger.info("Event subscriber disconnected: {}.", e.getMessage());
+                    evict(this);
+                    return;
+                } catch (RuntimeException e) {
+                    logger.error("Error when send event to subscriber.\nDetail:", e);
+                    evict(this);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @Title: start
+     * @Description:
+     * Start dispatcher and heartbeat threads.
+     * void
+     */
+    public void start() {
+        logger.info("Starting cluster event bus, threads={}, bufferSize={}, maxSubscribers={}, writeTimeout={}ms.",
+                THREADS, BUFFER_SIZE, MAX_SUBSCRIBERS, writeTimeout);
+        AtomicInteger threadIndex = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread thread = new Thread(r, "EventDispatcher-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "EventHeartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // heartbeat keeps idle connections open through proxies and detects dead subscribers
+        heartbeatScheduler.scheduleWithFixedDelay(() -> {
+            for (Subscriber subscriber : subscribers) {
+                // subscriber with events pending does not need heartbeat
+                if (subscriber.buffer.isEmpty()) {
+                    subscriber.offer(HEARTBEAT);
+                }
+            }
+        }, HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
+        long checkInterval = Math.max(1L, writeTimeout / 4);
+        heartbeatScheduler.scheduleWithFixedDelay(this::evictStalled, checkInterval, checkInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.interruptStalledWrite(now)) {
+                logger.warn("Event subscriber did not take event in {}ms, evict it.", writeTimeout);
+                evict(subscriber);
+            }
+        }
+    }
+
+    /**
+     * @Title: subscribe
+     * @Description:
+     * Subscribe events. Events after lastEventId are replayed if they are still kept,
+     * else current cluster status is sent as the first event.
+     * @param sink
+     * @param lastEventId: id of last event received before reconnecting, null if none
+     * @param clusterStatusJson: current cluster status, nothing is sent in its place if null
+     * @return
+     * Subscriber: null if there are too many subscribers
+     */
+    public Subscriber subscribe(EventSink sink, String lastEventId, byte[] clusterStatusJson) {
+        if (subscriberCount.incrementAndGet() > MAX_SUBSCRIBERS) {
+            subscriberCount.decrementAndGet();
+            logger.warn("Too many event subscribers, reject new one.");
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(sink);
+        synchronized (lock) {
+            subscriber.offer(RETRY);
+            long lastSeen = parseVersion(lastEventId);
+            Event oldest = history.peekFirst();
+            boolean canReplay = lastSeen >= 0 && lastSeen <= lastVersion
+                    && (lastSeen == lastVersion || (oldest != null && oldest.version <= lastSeen + 1));
+            if (canReplay) {
+                for (Event event : history) {
+                    if (event.version > lastSeen) {
+                        subscriber.offer(event.frame);
+                    }
+                }
+            } else if (clusterStatusJson != null) {
+                subscriber.offer(buildFrame(lastVersion, CLUSTER_STATUS, clusterStatusJson));
+            }
+            subscribers.add(subscriber);
+        }
+        logger.info("Event subscriber added, {} subscribers now.", subscriberCount.get());
+        return subscriber;
+    }
+
+    /**
+     * @Title: unsubscribe
+     * @Description:
+     * Remove subscriber whose connection is closed.
+     * @param subscriber
+     * void
+     */
+    public void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        if (subscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+            logger.info("Event subscriber removed, {} subscribers now.", subscriberCount.get());
+        }
+    }
+
+    private void evict(Subscriber subscriber) {
+        unsubscribe(subscriber);
+        // closing may wait for a blocked write, never do it on publishing thread
+        dispatcher.execute(subscriber.sink::close);
+    }
+
+    /**
+     * @Title: parseVersion
+     * @Description:
+     * Get version from event id of this run.
+     * @param eventId
+     * @return
+     * long: -1 if event id is null, malformed or of another run
+     */
+    private long parseVersion(String eventId) {
+        if (eventId == null || !eventId.startsWith(epoch) || eventId.length() <= epoch.length() + 1
+                || eventId.charAt(epoch.length()) != '-') {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(eventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private byte[] buildFrame(long version, String type, byte[] json) {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(json.length + 64);
+        byte[] head = ("id: " + epoch + "-" + version + "\nevent: " + type + "\ndata: ")
+                .getBytes(StandardCharsets.UTF_8);
+        frame.write(head, 0, head.length);
+        frame.write(json, 0, json.length);
+        frame.write('\n');
+        frame.write('\n');
+        return frame.toByteArray();
+    }
+
+    /**
+     * @Title: publish
+     * @Description:
+     * Publish event to all subscribers.
+     * @param type
+     * @param data
+     * void
+     */
+    public void publish(String type, Object data) {
+        synchronized (lock) {
+            publishLocked(type, data);
+        }
+    }
+
+    private void publishLocked(String type, Object data) {
+        long version = ++lastVersion;
+        ClusterEvent clusterEvent = new ClusterEvent(version, type, System.currentTimeMillis(), data);
+        byte[] json = GSON.toJson(clusterEvent).getBytes(StandardCharsets.UTF_8);
+        Event event = new Event(version, buildFrame(version, type, json));
+        history.addLast(event);
+        if (history.size() > HISTORY_SIZE) {
+            history.removeFirst();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event.frame);
+        }
+        logger.info("Published event {} {}, {} subscribers.", version, type, subscriberCount.get());
+    }
+
+    /**
+     * @Title: publishPrimary
+     * @Description:
+     * Publish PrimaryChanged event if primary is different from the last published one.
+     * @param primaryIp: null if there is no primary now
+     * void
+     */
+    public void publishPrimary(String primaryIp) {
+        synchronized (lock) {
+            publishPrimaryLocked(primaryIp);
+        }
+    }
+
+    private void publishPrimaryLocked(String primaryIp) {
+        if (Objects.equals(primaryIp, lastPrimary)) {
+            return;
+        }
+        Map<String, String> data = new HashMap<>();
+        data.put("primary", primaryIp);
+        data.put("previous", lastPrimary);
+        lastPrimary = primaryIp;
+        publishLocked(PRIMARY_CHANGED, data);
+    }
+
+    private static List<DefResStatus> getResources(ClusterStatus clusterStatus) {
+        // null if there is no defined resource in cluster
+        return clusterStatus.defResStatus == null ? Collections.emptyList() : clusterStatus.defResStatus;
+    }
+
+    /**
+     * @Title: publishChanges
+     * @Description:
+     * Compare cluster status with the previous one and publish events of the changes.
+     * @param previous: null if latest is the first cluster status, then no event is published
+     * @param latest
+     * void
+     */
+    public void publishChanges(ClusterStatus previous, ClusterStatus latest) {
+        String primary = null;
+        List<String> standbys = new ArrayList<>();
+        for (NodeStatus nodeStatus : latest.nodesStatus) {
+            if (PRIMARY.equals(nodeStatus.dnRole)) {
+                primary = nodeStatus.nodeIp;
+            } else if (STANDBY.equals(nodeStatus.dnRole)) {
+                standbys.add(nodeStatus.nodeIp);
+            }
+        }
+        Collections.sort(standbys);
+        synchronized (lock) {
+            if (previous == null) {
+                lastPrimary = primary;
+                lastStandbys = standbys;
+                return;
+            }
+            publishPrimaryLocked(primary);
+            if (!standbys.equals(lastStandbys)) {
+                lastStandbys = standbys;
+                publishLocked(STANDBYS_CHANGED, Collections.singletonMap("standbys", standbys));
+            }
+            Map<String, NodeStatus> previousNodes = new HashMap<>();
+            for (NodeStatus nodeStatus : previous.nodesStatus) {
+                previousNodes.put(nodeStatus.nodeIp, nodeStatus);
+            }
+            for (NodeStatus nodeStatus : latest.nodesStatus) {
+                NodeStatus previousNode = previousNodes.get(nodeStatus.nodeIp);
+                if (previousNode == null || !Objects.equals(previousNode.cmServerState, nodeStatus.cmServerState)
+                        || !Objects.equals(previousNode.dnRole, nodeStatus.dnRole)
+                        || !Objects.equals(previousNode.dnState, nodeStatus.dnState)) {
+                    publishLocked(NODE_STATE_CHANGED, nodeStatus);
+                }
+            }
+            Map<String, String> previousResources = new HashMap<>();
+            for (DefResStatus resStatus : getResources(previous)) {
+                previousResources.put(resStatus.nodeId + "/" + resStatus.resName, resStatus.state);
+            }
+            for (DefResStatus resStatus : getResources(latest)) {
+                String key = resStatus.nodeId + "/" + resStatus.resName;
+                if (!previousResources.containsKey(key)
+                        || !Objects.equals(previousResources.get(key), resStatus.state)) {
+                    publishLocked(RESOURCE_STATE_CHANGED, resStatus);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: ClusterStatusRefresher
+ * @author: agent
+ * @Description:
+ * Refresh cluster status snapshot in background by executing cm_ctl query -v periodically,
+ * so that ClusterStatus and NodeStatus requests are served from memory without launching any process.
+ * Every snapshot has a version which is increased whenever cluster status changes,
+ * clients can wait for the next change by awaitChange. Changes are also published to ClusterEventBus.
+ * Refresh interval and max staleness (ms) can be set by system properties
+ * cmrestapi.status.refreshInterval and cmrestapi.status.maxStaleness.
+ * Created on: 2026/10/17
+ */
+public class ClusterStatusRefresher implements Runnable {
+    private static final long REFRESH_INTERVAL = Long.getLong("cmrestapi.status.refreshInterval", 1000L);
+    private static final long MAX_STALENESS = Long.getLong("cmrestapi.status.maxStaleness", 5000L);
+    private final String THREAD_NAME;
+    private ScheduledExecutorService scheduler;
+    private OGCmdExecuter ogCmdExecuter;
+    private CmQueryParser cmQueryParser;
+    private volatile Snapshot snapshot;
+    private volatile CmdResult lastFailure;
+    // completed with the new snapshot and removed when cluster status changes
+    private final Set<CompletableFuture<Snapshot>> watchers = ConcurrentHashMap.newKeySet();
+    private Logger logger = LoggerFactory.getLogger(ClusterStatusRefresher.class);
+
+    public ClusterStatusRefresher() {
+        THREAD_NAME = "ClusterStatusRefresher";
+        ogCmdExecuter = new OGCmdExecuter(CMRestAPI.envFile);
+        cmQueryParser = new CmQueryParser();
+    }
+
+    /**
+     * @Title: Snapshot
+     * @author: agent
+     * @Description: Parsed cluster status, its serialized form, version and the time it was taken.
+     * Status of nodes is indexed by node id, serialized status of single nodes is cached
+     * and shared by snapshots of the same version.
+     * Created on: 2026/10/17
+     */
+    static class Snapshot {
+        final ClusterStatus clusterStatus;
+        final JsonPayload payload;
+        final long version;
+        final long timestamp;
+        private final Map<Integer, NodeStatus> nodeIndex;
+        private final ConcurrentHashMap<Integer, JsonPayload> nodePayloads;
+
+        Snapshot(ClusterStatus clusterStatus, JsonPayload payload, long version, long timestamp) {
+            this.clusterStatus = clusterStatus;
+            this.payload = payload;
+            this.version = version;
+            this.timestamp = timestamp;
+            Map<Integer, NodeStatus> index = new HashMap<>();
+            for (NodeStatus nodeStatus : clusterStatus.nodesStatus) {
+                index.putIfAbsent(nodeStatus.nodeId, nodeStatus);
+            }
+            this.nodeIndex = Collections.unmodifiableMap(index);
+            this.nodePayloads = new ConcurrentHashMap<>();
+        }
+
+        private Snapshot(Snapshot previous, long timestamp) {
+            this.clusterStatus = previous.clusterStatus;
+            this.payload = previous.payload;
+            this.version = previous.version;
+            this.timestamp = timestamp;
+            this.nodeIndex = previous.nodeIndex;
+            this.nodePayloads = previous.nodePayloads;
+        }
+
+        /**
+         * @Title: getNodeStatus
+         * @Description:
+         * Get status of node by node id.
+         * @param nodeId
+         * @return
+         * NodeStatus: null if node is not in cluster
+         */
+        NodeStatus getNodeStatus(int nodeId) {
+            return nodeIndex.get(nodeId);
+        }
+
+        /**
+         * @Title: getNodePayload
+         * @Description:
+         * Get serialized status of node by node id, serialized once per version.
+         * @param nodeId
+         * @return
+         * JsonPayload: null if node is not in cluster
+         */
+        JsonPayload getNodePayload(int nodeId) {
+            NodeStatus nodeStatus = nodeIndex.get(nodeId);
+            if (nodeStatus == null) {
+                return null;
+            }
+            return nodePayloads.computeIfAbsent(nodeId, id -> JsonPayload.of(nodeStatus));
+        }
+
+        /**
+         * @Title: getNodesPayload
+         * @Description:
+         * Get serialized status list of all nodes.
+         * @return
+         * JsonPayload
+         */
+        JsonPayload getNodesPayload() {
+            List<NodeStatus> nodesStatus = clusterStatus.nodesStatus;
+            // node id is positive, 0 is free for the list of all nodes
+            return nodePayloads.computeIfAbsent(0, id -> JsonPayload.of(nodesStatus));
+        }
+
+        /**
+         * @Title: getAge
+         * @Description:
+         * Get age of this snapshot in milliseconds.
+         * @return
+         * long
+         */
+        long getAge() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - timestamp);
+        }
+    }
+
+    /**
+     * @Title: getSnapshot
+     * @Description:
+     * Get latest snapshot, null if there is no snapshot yet or it is older than max staleness.
+     * @return
+     * Snapshot
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null || current.getAge() > MAX_STALENESS) {
+            return null;
+        }
+        return current;
+    }
+
+    /**
+     * @Title: awaitChange
+     * @Description:
+     * Wait for cluster status whose version is different from the given one.
+     * Completes immediately if current version is already different, for example
+     * when version was got before restart. Caller should cancel the returned future
+     * when it stops waiting, so that it is released at once.
+     * @param version
+     * @return
+     * CompletableFuture<Snapshot>
+     */
+    public CompletableFuture<Snapshot> awaitChange(long version) {
+        CompletableFuture<Snapshot> change = new CompletableFuture<>();
+        // register before reading snapshot, a change between the two is then seen by either of them
+        watchers.add(change);
+        change.whenComplete((snapshot, exp) -> watchers.remove(change));
+        Snapshot current = getSnapshot();
+        if (current != null && current.version != version) {
+            change.complete(current);
+        }
+        return change;
+    }
+
+    /**
+     * @Title: getLastFailure
+     * @Description:
+     * Get result of last failed refresh, null if the command could not be executed
+     * or no refresh has failed.
+     * @return
+     * CmdResult
+     */
+    public CmdResult getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public void run() {
+        try {
+            CmdResult cmdResult = ogCmdExecuter.getClusterStatus();
+            if (cmdResult == null || cmdResult.statusCode != 0) {
+                lastFailure = cmdResult;
+                logger.error("Failed to refresh cluster status.");
+                return;
+            }
+            long parseStart = System.nanoTime();
+            ClusterStatus clusterStatus = cmQueryParser.parseClusterStatus(cmdResult.resultString);
+            Metrics.PARSE_DURATION.labels("cluster_status").observeSince(parseStart);
+            Snapshot previous = snapshot;
+            // keep payload of previous snapshot if nothing changed, so that it is not compressed again
+            JsonPayload payload = JsonPayload.of(clusterStatus).reuse(previous == null ? null : previous.payload);
+            boolean hasChanged = previous == null || payload != previous.payload;
+            Snapshot latest;
+            if (hasChanged) {
+                // start from current time, so that versions of different runs hardly collide
+                long version = previous == null ? System.currentTimeMillis() : previous.version + 1;
+                latest = new Snapshot(clusterStatus, payload, version, System.nanoTime());
+            } else {
+                // keep index and serialized node status of previous snapshot
+                latest = new Snapshot(previous, System.nanoTime());
+            }
+            snapshot = latest;
+            if (hasChanged) {
+                for (CompletableFuture<Snapshot> change : watchers) {
+                    change.complete(latest);
+                }
+                CMRestAPI.clusterEventBus.publishChanges(previous == null ? null : previous.clusterStatus, clusterStatus);
+            }
+            lastFailure = null;
+        } catch (RuntimeException e) {
+            // keep the scheduled task alive
+            logger.error("Error when refresh cluster status.\nDetail:", e);
+        }
+    }
+
+    /**
+     * @Title: start
+     * @Description:
+     * Start refreshing cluster status periodically.
+     * void
+     */
+    public void start() {
+        logger.info("Starting thread {}, refreshInterval={}ms, maxStaleness={}ms.",
+                THREAD_NAME, REFRESH_INTERVAL, MAX_STALENESS);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            // take the first snapshot before serving requests
+            run();
+            scheduler.scheduleWithFixedDelay(this, REFRESH_INTERVAL, REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.ArrayList;
+
+/**
+ * @Title: CmQueryParser
+ * @author: agent
+ * @Description:
+ * Single pass parser of cm_ctl query -v and gs_ctl query output.
+ * Output is read once line by line, and fields are recognized by key prefix,
+ * so parsing cost grows linearly with the number of nodes.
+ * Created on: 2026/10/17
+ */
+public class CmQueryParser {
+    private static final int NODE_SEPARATOR_MIN_LEN = 70;
+    private static final String DEF_RES_TITLE = "Defined Resource State";
+    private static final String CLUSTER_STATE = "cluster_state";
+    private static final String NODE = "node";
+    private static final String NODE_IP = "node_ip";
+    private static final String TYPE = "type";
+    private static final String CMSERVER = "CMServer";
+    private static final String DATANODE = "Datanode";
+    private static final String INSTANCE_STATE = "instance_state";
+    private static final String HA_STATE = "HA_state";
+    private static final String LOCAL_ROLE = "local_role";
+    private static final String VALUE_SEPARATOR = ": ";
+
+    private String output;
+    private int pos;
+    private final NodeScanner nodeScanner = new NodeScanner();
+
+    /**
+     * @Title: NodeScanner
+     * @author: agent
+     * @Description:
+     * Collect status fields of one node. Only the first occurrence of every field is kept.
+     * Created on: 2026/10/17
+     */
+    private static class NodeScanner {
+        private static final int TYPE_NONE = 0;
+        private static final int TYPE_CMSERVER = 1;
+        private static final int TYPE_DATANODE = 2;
+        int nodeId;
+        String nodeIp;
+        String cmServerState;
+        String dnRole;
+        String dnState;
+        int pendingType;
+        boolean isEmpty;
+
+        void reset() {
+            nodeId = 0;
+            nodeIp = null;
+            cmServerState = null;
+            dnRole = null;
+            dnState = null;
+            pendingType = TYPE_NONE;
+            isEmpty = true;
+        }
+
+        void accept(String line) {
+            if (line.isEmpty()) {
+                return;
+            }
+            isEmpty = false;
+            int type = pendingType;
+            pendingType = TYPE_NONE;
+            if (line.startsWith(INSTANCE_STATE)) {
+                if (type == TYPE_CMSERVER && cmServerState == null) {
+                    cmServerState = getValue(line);
+                } else if (type == TYPE_DATANODE && dnRole == null) {
+                    dnRole = getValue(line);
+                }
+            } else if (line.startsWith(TYPE)) {
+                if (line.indexOf(CMSERVER, TYPE.length()) > 0) {
+                    pendingType = TYPE_CMSERVER;
+                } else if (line.indexOf(DATANODE, TYPE.length()) > 0) {
+                    pendingType = TYPE_DATANODE;
+                }
+            } else if (nodeIp == null && line.startsWith(NODE_IP)) {
+                nodeIp = getValue(line);
+            } else if (dnState == null && line.startsWith(HA_STATE)) {
+                dnState = getValue(line);
+            } else if (nodeId == 0 && isKey(line, NODE)) {
+                nodeId = parseNodeId(getValue(line));
+            }
+        }
+
+        NodeStatus toNodeStatus() {
+            return new NodeStatus(nodeId, nodeIp, cmServerState, dnRole, dnState);
+        }
+    }
+
+    /**
+     * @Title: parseClusterStatus
+     * @Description:
+     * Parse result of cm_ctl query -v.
+     * Output consists of an optional defined resource section, cluster state section
+     * and node sections, which are separated by lines of at least 70 '-'.
+     * Separator lines before the first section are skipped.
+     * @param resultString
+     * @return
+     * ClusterStatus
+     */
+    public ClusterStatus parseClusterStatus(String resultString) {
+        reset(resultString);
+        ClusterStatus clusterStatus = new ClusterStatus();
+        clusterStatus.nodesStatus = new ArrayList<NodeStatus>();
+        int section = 0;
+        int clusterStateSection = 0;
+        int resSeparators = 0;
+        boolean hasContent = false;
+        String line;
+        while ((line = nextLine()) != null) {
+            if (isSeparator(line)) {
+                if (!hasContent) {
+                    // separators before any content do not end a section
+                    continue;
+                }
+                if (line.length() >= NODE_SEPARATOR_MIN_LEN) {
+                    if (section > clusterStateSection && !nodeScanner.isEmpty) {
+                        clusterStatus.nodesStatus.add(nodeScanner.toNodeStatus());
+                    }
+                    nodeScanner.reset();
+                    ++section;
+                } else if (section == 0) {
+                    ++resSeparators;
+                }
+                continue;
+            }
+            hasContent = hasContent || !line.isEmpty();
+            if (section > clusterStateSection) {
+                nodeScanner.accept(line);
+            } else if (section == clusterStateSection) {
+                if (clusterStatus.clusterState == null && line.startsWith(CLUSTER_STATE)) {
+                    clusterStatus.clusterState = getValue(line);
+                }
+                if (section == 0 && clusterStatus.defResStatus == null && line.contains(DEF_RES_TITLE)) {
+                    // cluster state follows defined resource state section
+                    clusterStatus.defResStatus = new ArrayList<DefResStatus>();
+                    clusterStateSection = 1;
+                }
+            } else if (resSeparators == 1 && !line.isEmpty()) {
+                // node  node_name  res_name  instance  state
+                String[] items = line.split("\\s+");
+                if (items.length >= 5) {
+                    clusterStatus.defResStatus.add(new DefResStatus(Integer.parseInt(items[0]), items[4], items[2]));
+                }
+            }
+        }
+        if (section > clusterStateSection && !nodeScanner.isEmpty) {
+            clusterStatus.nodesStatus.add(nodeScanner.toNodeStatus());
+        }
+        return clusterStatus;
+    }
+
+    /**
+     * @Title: parseLocalRole
+     * @Description:
+     * Parse local_role from result of gs_ctl query.
+     * @param resultString
+     * @return
+     * String: null if local_role is not found
+     */
+    public String parseLocalRole(String resultString) {
+        reset(resultString);
+        String line;
+        while ((line = nextLine()) != null) {
+            if (line.startsWith(LOCAL_ROLE)) {
+                String localRole = getValue(line);
+                if (localRole != null && !localRole.isEmpty()) {
+                    return localRole;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void reset(String resultString) {
+        output = resultString == null ? "" : resultString;
+        pos = 0;
+        nodeScanner.reset();
+    }
+
+    /**
+     * @Title: nextLine
+     * @Description:
+     * Get next trimmed line of output.
+     * @return
+     * String: null if the end of output is reached
+     */
+    private String nextLine() {
+        int length = output.length();
+        if (pos >= length) {
+            return null;
+        }
+        int end = output.indexOf('\n', pos);
+        if (end < 0) {
+            end = length;
+        }
+        String line = output.substring(pos, end).trim();
+        pos = end + 1;
+        return line;
+    }
+
+    private static boolean isSeparator(String line) {
+        if (line.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < line.length(); ++i) {
+            if (line.charAt(i) != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @Title: isKey
+     * @Description:
+     * Check whether line is exactly "key : value", so that node does not match node_ip.
+     * @param line
+     * @param key
+     * @return
+     * boolean
+     */
+    private static boolean isKey(String line, String key) {
+        if (!line.startsWith(key)) {
+            return false;
+        }
+        int i = key.length();
+        while (i < line.length() && line.charAt(i) == ' ') {
+            ++i;
+        }
+        return i < line.length() && line.charAt(i) == ':';
+    }
+
+    private static int parseNodeId(String value) {
+        try {
+            return value == null ? 0 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String getValue(String line) {
+        int index = line.lastIndexOf(VALUE_SEPARATOR);
+        if (index < 0) {
+            return null;
+        }
+        return line.substring(index + VALUE_SEPARATOR.length()).trim();
+    }
+}
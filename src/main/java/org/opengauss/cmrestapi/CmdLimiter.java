@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: CmdLimiter
+ * @author: agent
+ * @Description:
+ * Limit concurrent executions of openGauss commands, so that clients can not fork
+ * unbounded cm_ctl and gs_ctl processes on the database host.
+ * Every command class has its own limit and bounded wait queue. The limit is adjusted
+ * by AIMD: increased by one when a command finishes in time while at least half of the limit
+ * is in use, and multiplied by 0.75 when a command times out or takes longer than the latency threshold.
+ * Commands arriving when the queue is full are rejected with CmdRejectedException.
+ * Configured by system properties:
+ *     cmrestapi.limit.<class>.max: max limit, 8 for query and ddbRead, 4 for ddbWrite
+ *     cmrestapi.limit.<class>.min: min limit, 1
+ *     cmrestapi.limit.queueSize: max commands waiting per class, 64
+ *     cmrestapi.limit.latencyThreshold: ms, 2000
+ * Created on: 2026/10/17
+ */
+public class CmdLimiter {
+    private static final int QUEUE_SIZE = Integer.getInteger("cmrestapi.limit.queueSize", 64);
+    private static final long LATENCY_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("cmrestapi.limit.latencyThreshold", 2000L));
+    private static final double BACKOFF_RATIO = 0.75;
+    private static final int TIMEOUT_STATUS_CODE = 124;
+    private final Map<CmdClass, Budget> budgets = new EnumMap<>(CmdClass.class);
+    private static Logger logger = LoggerFactory.getLogger(CmdLimiter.class);
+
+    /**
+     * @Title: CmdClass
+     * @author: agent
+     * @Description: Class of command, each class has its own limit.
+     * Created on: 2026/10/17
+     */
+    public enum CmdClass {
+        QUERY("query", 8),
+        DDB_READ("ddbRead", 8),
+        DDB_WRITE("ddbWrite", 4);
+
+        private final String name;
+        private final int defaultMax;
+
+        CmdClass(String name, int defaultMax) {
+            this.name = name;
+            this.defaultMax = defaultMax;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * @Title: CmdRejectedException
+     * @author: agent
+     * @Description: Command rejected because limit and wait queue of its class are full.
+     * Created on: 2026/10/17
+     */
+    public static class CmdRejectedException extends RejectedExecutionException {
+        private static final long serialVersionUID = 1L;
+
+        CmdRejectedException(CmdClass cmdClass) {
+            super("Too many " + cmdClass + " commands are running.");
+        }
+    }
+
+    public CmdLimiter() {
+        for (CmdClass cmdClass : CmdClass.values()) {
+            budgets.put(cmdClass, new Budget(cmdClass));
+        }
+    }
+
+    /**
+     * @Title: Pending
+     * @author: agent
+     * @Description: Command waiting for a slot.
+     * Created on: 2026/10/17
+     */
+    private static class Pending {
+        final Supplier<CompletableFuture<CmdResult>> launcher;
+        final CompletableFuture<CmdResult> future;
+
+        Pending(Supplier<CompletableFuture<CmdResult>> launcher, CompletableFuture<CmdResult> future) {
+            this.launcher = launcher;
+            this.future = future;
+        }
+    }
+
+    /**
+     * @Title: Budget
+     * @author: agent
+     * @Description: Limit, running and waiting commands of one class.
+     * Created on: 2026/10/17
+     */
+    private static class Budget {
+        private final CmdClass cmdClass;
+        private final int minLimit;
+        private final int maxLimit;
+        private final ArrayDeque<Pending> waiting = new ArrayDeque<>();
+        private double limit;
+        private int inFlight;
+
+        Budget(CmdClass cmdClass) {
+            this.cmdClass = cmdClass;
+            this.maxLimit = Math.max(1, Integer.getInteger("cmrestapi.limit." + cmdClass + ".max",
+                    cmdClass.defaultMax));
+            this.minLimit = Math.max(1, Math.min(maxLimit, Integer.getInteger("cmrestapi.limit." + cmdClass + ".min",
+                    1)));
+            // start in the middle, so that a slow database is not hit by max limit at once
+            this.limit = Math.max(minLimit, maxLimit / 2);
+        }
+
+        CompletableFuture<CmdResult> submit(Supplier<CompletableFuture<CmdResult>> launcher) {
+            CompletableFuture<CmdResult> future = new CompletableFuture<>();
+            synchronized (this) {
+                if (inFlight >= (int) limit) {
+                    if (waiting.size() >= QUEUE_SIZE) {
+                        Metrics.EXEC_REJECTED.labels(cmdClass.toString()).inc();
+                        future.completeExceptionally(new CmdRejectedException(cmdClass));
+                        return future;
+                    }
+                    waiting.add(new Pending(launcher, future));
+                    return future;
+                }
+                inFlight++;
+            }
+            launch(launcher, future);
+            return future;
+        }
+
+        private void launch(Supplier<CompletableFuture<CmdResult>> launcher, CompletableFuture<CmdResult> future) {
+            long start = System.nanoTime();
+            CompletableFuture<CmdResult> execution = start(launcher);
+            // cancelling caller's future kills the command
+            future.whenComplete((cmdResult, exp) -> {
+                if (future.isCancelled()) {
+                    execution.cancel(true);
+                }
+            });
+            execution.whenComplete((cmdResult, exp) -> {
+                release(System.nanoTime() - start, cmdResult);
+                if (exp != null) {
+                    future.completeExceptionally(exp);
+                } else {
+                    future.complete(cmdResult);
+                }
+            });
+        }
+
+        private static CompletableFuture<CmdResult> start(Supplier<CompletableFuture<CmdResult>> launcher) {
+            try {
+                return launcher.get();
+            } catch (RuntimeException e) {
+                CompletableFuture<CmdResult> execution = new CompletableFuture<>();
+                execution.completeExceptionally(e);
+                return execution;
+            }
+        }
+
+        private void release(long latency, CmdResult cmdResult) {
+            Pending next = null;
+            for (;;) {
+                synchronized (this) {
+                    if (next == null) {
+                        inFlight--;
+                        adjust(latency, cmdResult);
+                    }
+                    next = inFlight < (int) limit ? waiting.poll() : null;
+                    // skip commands cancelled while waiting
+                    while (next != null && next.future.isDone()) {
+                        next = waiting.poll();
+                    }
+                    if (next == null) {
+                        return;
+                    }
+                    inFlight++;
+                }
+                launch(next.launcher, next.future);
+            }
+        }
+
+        private void adjust(long latency, CmdResult cmdResult) {
+            double previous = limit;
+            boolean isSlow = latency > LATENCY_THRESHOLD
+                    || (cmdResult != null && cmdResult.statusCode == TIMEOUT_STATUS_CODE);
+            if (isSlow) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            if ((int) limit != (int) previous) {
+                logger.info("Limit of {} commands changed from {} to {}.", cmdClass, (int) previous, (int) limit);
+            }
+        }
+    }
+
+    /**
+     * @Title: execute
+     * @Description:
+     * Launch command when its class has a free slot, or wait in queue for one.
+     * @param cmdClass
+     * @param launcher: launch the command
+     * @return
+     * CompletableFuture<CmdResult>: completed exceptionally with CmdRejectedException if the queue is full
+     */
+    public CompletableFuture<CmdResult> execute(CmdClass cmdClass, Supplier<CompletableFuture<CmdResult>> launcher) {
+        return budgets.get(cmdClass).submit(launcher);
+    }
+
+    /**
+     * @Title: isRejected
+     * @Description:
+     * Check whether command failed because too many commands are running.
+     * Saturation of the process pool of CmdRunner counts as well.
+     * @param exp: exception of command future, may be wrapped in CompletionException
+     * @return
+     * boolean
+     */
+    public static boolean isRejected(Throwable exp) {
+        for (Throwable cause = exp; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RejectedExecutionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
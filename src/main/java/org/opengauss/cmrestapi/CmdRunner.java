@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: CmdRunner
+ * @author: agent
+ * @Description:
+ * Run child processes asynchronously on a bounded pool.
+ * stdout and stderr are drained at the same time into bounded per-thread buffers,
+ * the deadline is enforced by killing the whole process tree, and cancelling
+ * the returned future kills the process tree as well.
+ * Pool size, queue size and max captured bytes of each stream can be set by system
+ * properties cmrestapi.exec.threads, cmrestapi.exec.queueSize and cmrestapi.exec.maxOutput.
+ * Created on: 2026/10/17
+ */
+public class CmdRunner {
+    private static final int THREADS = Integer.getInteger("cmrestapi.exec.threads", 16);
+    private static final int QUEUE_SIZE = Integer.getInteger("cmrestapi.exec.queueSize", 256);
+    private static final int MAX_OUTPUT = Integer.getInteger("cmrestapi.exec.maxOutput", 4 * 1024 * 1024);
+    private static final int TIMEOUT_STATUS_CODE = 124;
+    private static final ThreadPoolExecutor EXEC_POOL = new ThreadPoolExecutor(THREADS, THREADS,
+            60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), namedThreadFactory("CmdExec"));
+    private static final ExecutorService DRAIN_POOL = Executors.newCachedThreadPool(namedThreadFactory("CmdDrain"));
+    private static final ScheduledExecutorService WATCHDOG =
+            Executors.newSingleThreadScheduledExecutor(namedThreadFactory("CmdWatchdog"));
+    private static final ThreadLocal<OutputBuffer> BUFFERS = ThreadLocal.withInitial(OutputBuffer::new);
+    private static Logger logger = LoggerFactory.getLogger(CmdRunner.class);
+
+    static {
+        EXEC_POOL.allowCoreThreadTimeOut(true);
+    }
+
+    private CmdRunner() {
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger threadNo = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @Title: OutputBuffer
+     * @author: agent
+     * @Description:
+     * Reusable byte buffer which keeps at most MAX_OUTPUT bytes and discards the rest.
+     * Created on: 2026/10/17
+     */
+    private static class OutputBuffer {
+        private static final int INITIAL_SIZE = 8192;
+        private static final int RETAINED_SIZE = 256 * 1024;
+        private final byte[] chunk = new byte[INITIAL_SIZE];
+        private byte[] bytes = new byte[INITIAL_SIZE];
+        private int count;
+        private boolean isTruncated;
+
+        String drain(InputStream in) throws IOException {
+            count = 0;
+            isTruncated = false;
+            int len;
+            while ((len = in.read(chunk)) != -1) {
+                append(chunk, len);
+            }
+            if (count > 0 && bytes[count - 1] != '\n') {
+                append(System.lineSeparator().getBytes(StandardCharsets.UTF_8), System.lineSeparator().length());
+            }
+            String result = new String(bytes, 0, count, StandardCharsets.UTF_8);
+            if (isTruncated) {
+                logger.warn("Output exceeds {} bytes, the rest is discarded.", MAX_OUTPUT);
+            }
+            if (bytes.length > RETAINED_SIZE) {
+                bytes = new byte[INITIAL_SIZE];
+            }
+            return result;
+        }
+
+        private void append(byte[] data, int len) {
+            int accepted = Math.min(len, MAX_OUTPUT - count);
+            if (accepted < len) {
+                isTruncated = true;
+            }
+            if (accepted <= 0) {
+                return;
+            }
+            if (count + accepted > bytes.length) {
+                byte[] newBytes = new byte[Math.min(MAX_OUTPUT, Math.max(bytes.length * 2, count + accepted))];
+                System.arraycopy(bytes, 0, newBytes, 0, count);
+                bytes = newBytes;
+            }
+            System.arraycopy(data, 0, bytes, count, accepted);
+            count += accepted;
+        }
+    }
+
+    /**
+     * @Title: run
+     * @Description:
+     * Start process asynchronously.
+     * @param processBuilder
+     * @param timeout: milliseconds, no limit if timeout <= 0
+     * @return
+     * CompletableFuture<CmdResult>: statusCode is 124 if timeout, completed exceptionally
+     * with RejectedExecutionException if the pool is saturated
+     */
+    public static CompletableFuture<CmdResult> run(ProcessBuilder processBuilder, long timeout) {
+        CompletableFuture<CmdResult> future = new CompletableFuture<>();
+        try {
+            EXEC_POOL.execute(() -> runProcess(processBuilder, timeout, future));
+        } catch (RejectedExecutionException e) {
+            logger.error("Too many commands are waiting, reject command: {}.", processBuilder.command());
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * @Title: supply
+     * @Description:
+     * Run blocking task on the command pool.
+     * @param task
+     * @return
+     * CompletableFuture<T>
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, EXEC_POOL);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    private static void runProcess(ProcessBuilder processBuilder, long timeout, CompletableFuture<CmdResult> future) {
+        if (future.isDone()) {
+            // cancelled before started
+            return;
+        }
+        Process process;
+        try {
+            process = processBuilder.start();
+            Metrics.PROCESS_STARTS.labels().inc();
+        } catch (IOException e) {
+            logger.error("Exception happend when start command: {}.\nDetail:", processBuilder.command(), e);
+            future.completeExceptionally(e);
+            return;
+        }
+        AtomicBoolean isKilled = new AtomicBoolean(false);
+        ScheduledFuture<?> killer = null;
+        if (timeout > 0) {
+            killer = WATCHDOG.schedule(() -> {
+                if (isKilled.compareAndSet(false, true)) {
+                    logger.error("Command timeout after {}ms: {}.", timeout, processBuilder.command());
+                    killProcessTree(process);
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+        future.whenComplete((cmdResult, exp) -> {
+            if (future.isCancelled() && isKilled.compareAndSet(false, true)) {
+                logger.info("Command cancelled: {}.", processBuilder.command());
+                killProcessTree(process);
+            }
+        });
+        try {
+            process.getOutputStream().close();
+            Future<String> errorString = DRAIN_POOL.submit(() -> BUFFERS.get().drain(process.getErrorStream()));
+            String resultString = BUFFERS.get().drain(process.getInputStream());
+            int statusCode = process.waitFor();
+            if (killer != null) {
+                killer.cancel(false);
+            }
+            if (isKilled.get()) {
+                statusCode = TIMEOUT_STATUS_CODE;
+            }
+            future.complete(new CmdResult(statusCode, resultString, errorString.get()));
+        } catch (IOException | ExecutionException e) {
+            logger.error("Exception happend when excute command: {}.\nDetail:", processBuilder.command(), e);
+            killProcessTree(process);
+            future.completeExceptionally(e);
+        } catch (InterruptedException e) {
+            killProcessTree(process);
+            future.completeExceptionally(e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @Title: killProcessTree
+     * @Description:
+     * Kill process and all its descendants, such as children of shell.
+     * @param process
+     * void
+     */
+    static void killProcessTree(Process process) {
+        long pid = getPid(process);
+        List<String> descendants = new ArrayList<>();
+        if (pid > 0) {
+            collectDescendants(String.valueOf(pid), descendants);
+        }
+        process.destroyForcibly();
+        if (descendants.isEmpty()) {
+            return;
+        }
+        List<String> cmd = new ArrayList<>();
+        cmd.add("kill");
+        cmd.add("-KILL");
+        cmd.addAll(descendants);
+        try {
+            new ProcessBuilder(cmd)
+                    .redirectOutput(ProcessBuilder.Redirect.to(new File("/dev/null")))
+                    .redirectError(ProcessBuilder.Redirect.to(new File("/dev/null")))
+                    .start();
+        } catch (IOException e) {
+            logger.error("Failed to kill processes {}.\nDetail:", descendants, e);
+        }
+    }
+
+    private static void collectDescendants(String pid, List<String> descendants) {
+        Path tasks = Paths.get("/proc", pid, "task");
+        if (!Files.isDirectory(tasks)) {
+            return;
+        }
+        try (DirectoryStream<Path> taskStream = Files.newDirectoryStream(tasks)) {
+            for (Path task : taskStream) {
+                String children = new String(Files.readAllBytes(task.resolve("children")), StandardCharsets.UTF_8);
+                for (String child : children.trim().split("\\s+")) {
+                    if (!child.isEmpty()) {
+                        descendants.add(child);
+                        collectDescendants(child, descendants);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to get children of process {}.", pid);
+        }
+    }
+
+    private static long getPid(Process process) {
+        try {
+            Method method = Process.class.getMethod("pid");
+            return (Long) method.invoke(process);
+        } catch (NoSuchMethodException e) {
+            try {
+                // java 8
+                Field field = process.getClass().getDeclaredField("pid");
+                field.setAccessible(true);
+                return field.getInt(process);
+            } catch (ReflectiveOperationException | RuntimeException exp) {
+                return -1;
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: CmdSingleFlight
+ * @author: agent
+ * @Description:
+ * Coalesce concurrent executions of the same command. The first caller of a key
+ * executes the command, callers arriving while it is running wait for and share its result.
+ * Waiters are counted, the command is cancelled and so killed when the last waiter cancels.
+ * Created on: 2026/10/17
+ */
+public class CmdSingleFlight {
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private Logger logger = LoggerFactory.getLogger(CmdSingleFlight.class);
+
+    /**
+     * @Title: Flight
+     * @author: agent
+     * @Description: One execution shared by its waiters.
+     * Created on: 2026/10/18
+     */
+    private static class Flight {
+        final CompletableFuture<CmdResult> result = new CompletableFuture<>();
+        private CompletableFuture<CmdResult> execution;
+        private int waiters;
+        private boolean isCancelled;
+
+        /**
+         * @Title: join
+         * @Description:
+         * Add a waiter.
+         * @return
+         * boolean: false if the execution is cancelled already
+         */
+        synchronized boolean join() {
+            if (isCancelled) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        /**
+         * @Title: leave
+         * @Description:
+         * Remove a cancelled waiter, and cancel the execution if it was the last one.
+         * @return
+         * boolean: true if the execution is cancelled
+         */
+        boolean leave() {
+            CompletableFuture<CmdResult> toCancel;
+            synchronized (this) {
+                if (--waiters > 0 || result.isDone()) {
+                    return false;
+                }
+                isCancelled = true;
+                toCancel = execution;
+            }
+            if (toCancel != null) {
+                toCancel.cancel(true);
+            }
+            return true;
+        }
+
+        void setExecution(CompletableFuture<CmdResult> execution) {
+            synchronized (this) {
+                this.execution = execution;
+                if (!isCancelled) {
+                    return;
+                }
+            }
+            // the only waiter cancelled before the command was launched
+            execution.cancel(true);
+        }
+    }
+
+    /**
+     * @Title: execute
+     * @Description:
+     * Execute command identified by key, or share the execution already in flight.
+     * Every caller gets its own future. Cancelling it only releases the caller,
+     * unless no other caller is waiting, then the command is cancelled as well.
+     * @param key
+     * @param executer
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> execute(String key, Supplier<CompletableFuture<CmdResult>> executer) {
+        Flight created = new Flight();
+        Flight flight = inFlight.compute(key, (k, existing) -> {
+            if (existing != null && existing.join()) {
+                return existing;
+            }
+            created.join();
+            return created;
+        });
+        if (flight != created) {
+            logger.debug("Sharing command in flight: {}.", key);
+            Metrics.EXEC_COALESCED.labels().inc();
+        } else {
+            launch(key, flight, executer);
+        }
+        CompletableFuture<CmdResult> waiter = new CompletableFuture<>();
+        flight.result.whenComplete((cmdResult, exp) -> {
+            if (exp != null) {
+                waiter.completeExceptionally(exp);
+            } else {
+                waiter.complete(cmdResult);
+            }
+        });
+        waiter.whenComplete((cmdResult, exp) -> {
+            if (waiter.isCancelled() && flight.leave()) {
+                logger.debug("Cancelled command in flight: {}.", key);
+                inFlight.remove(key, flight);
+            }
+        });
+        return waiter;
+    }
+
+    private void launch(String key, Flight flight, Supplier<CompletableFuture<CmdResult>> executer) {
+        CompletableFuture<CmdResult> execution;
+        try {
+            execution = executer.get();
+        } catch (RuntimeException e) {
+            execution = new CompletableFuture<>();
+            execution.completeExceptionally(e);
+        }
+        execution.whenComplete((cmdResult, exp) -> {
+            inFlight.remove(key, flight);
+            if (exp != null) {
+                flight.result.completeExceptionally(exp);
+            } else {
+                flight.result.complete(cmdResult);
+            }
+        });
+        flight.setExecution(execution);
+    }
+}
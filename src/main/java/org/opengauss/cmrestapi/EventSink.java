@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.io.IOException;
+
+/**
+ * @Title: EventSink
+ * @author: agent
+ * @Description:
+ * Connection of one event subscriber, implemented by the server in use.
+ * Created on: 2026/10/17
+ */
+public interface EventSink {
+    /**
+     * @Title: send
+     * @Description:
+     * Write one serialized event to subscriber and flush it. May block while the connection is congested.
+     * @param frame
+     * @throws IOException if the connection is broken
+     * void
+     */
+    void send(byte[] frame) throws IOException;
+
+    /**
+     * @Title: close
+     * @Description:
+     * Close connection of subscriber.
+     * void
+     */
+    void close();
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.opengauss.cmrestapi.InfoPushDispatcher.PushResult;
+
+/**
+ * @Title: FailoverTrace
+ * @author: agent
+ * @Description:
+ * Timeline of one local role transition. Times are taken by System.nanoTime() and kept
+ * as milliseconds since the check which found the transition was triggered,
+ * wall clock time of the trigger is kept in triggeredAt.
+ * Created on: 2026/10/17
+ */
+class FailoverTrace {
+    long id;
+    final long triggeredAt;
+    final String trigger;
+    final String fromRole;
+    final String toRole;
+    final Map<String, Double> timeline = new LinkedHashMap<>();
+    int receivers;
+    final List<PushTrace> pushes = new ArrayList<>();
+    private final transient long origin;
+
+    FailoverTrace(String trigger, String fromRole, String toRole, long origin) {
+        this.triggeredAt = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+        this.trigger = trigger;
+        this.fromRole = fromRole;
+        this.toRole = toRole;
+        this.origin = origin;
+    }
+
+    /**
+     * @Title: PushTrace
+     * @author: agent
+     * @Description:
+     * Push of one info to one receiver. finished is null if the push did not finish before deadline,
+     * status is timeout, failed or http status code.
+     * Created on: 2026/10/17
+     */
+    static class PushTrace {
+        final String url;
+        final String infoType;
+        final Double submitted;
+        final Double started;
+        final Double finished;
+        final String status;
+
+        PushTrace(String url, String infoType, Double submitted, Double started, Double finished, String status) {
+            this.url = url;
+            this.infoType = infoType;
+            this.submitted = submitted;
+            this.started = started;
+            this.finished = finished;
+            this.status = status;
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        // keep microsecond precision
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    private Double offset(long nanos) {
+        return nanos == 0 ? null : toMillis(nanos - origin);
+    }
+
+    /**
+     * @Title: mark
+     * @Description:
+     * Record that the given step happened now.
+     * @param step
+     * void
+     */
+    void mark(String step) {
+        timeline.put(step, toMillis(System.nanoTime() - origin));
+    }
+
+    /**
+     * @Title: addPushes
+     * @Description:
+     * Record pushes of dispatch, pushes still running are recorded as not finished.
+     * @param pushResults
+     * void
+     */
+    void addPushes(List<PushResult> pushResults) {
+        synchronized (pushResults) {
+            for (PushResult pushResult : pushResults) {
+                pushes.add(new PushTrace(pushResult.url, pushResult.infoType, offset(pushResult.submittedAt),
+                        offset(pushResult.startedAt), offset(pushResult.finishedAt), pushResult.getStatus()));
+            }
+        }
+    }
+}
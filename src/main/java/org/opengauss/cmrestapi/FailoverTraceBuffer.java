@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Title: FailoverTraceBuffer
+ * @author: agent
+ * @Description:
+ * Fixed-size ring buffer of recent failover traces, the oldest trace is overwritten when full.
+ * Size can be set by system property cmrestapi.trace.size.
+ * Created on: 2026/10/17
+ */
+public class FailoverTraceBuffer {
+    private static final int SIZE = Math.max(1, Integer.getInteger("cmrestapi.trace.size", 64));
+    private final FailoverTrace[] traces = new FailoverTrace[SIZE];
+    private long nextId = 1;
+
+    /**
+     * @Title: add
+     * @Description:
+     * Add trace, id of trace is assigned here.
+     * @param trace
+     * void
+     */
+    synchronized void add(FailoverTrace trace) {
+        trace.id = nextId;
+        traces[(int) (nextId % SIZE)] = trace;
+        ++nextId;
+    }
+
+    /**
+     * @Title: getRecent
+     * @Description:
+     * Get recent traces, newest first.
+     * @param limit: max number of traces, all traces kept if limit <= 0
+     * @return
+     * List<FailoverTrace>
+     */
+    synchronized List<FailoverTrace> getRecent(int limit) {
+        long count = Math.min(nextId - 1, SIZE);
+        if (limit > 0) {
+            count = Math.min(count, limit);
+        }
+        List<FailoverTrace> recent = new ArrayList<>((int) count);
+        for (long id = nextId - 1; id >= nextId - count; --id) {
+            recent.add(traces[(int) (id % SIZE)]);
+        }
+        return recent;
+    }
+}
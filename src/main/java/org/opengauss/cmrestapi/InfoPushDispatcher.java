@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: InfoPushDispatcher
+ * @author: agent
+ * @Description:
+ * Push master info and standby info to all receive addresses concurrently
+ * by a bounded pool, and wait for all pushes within a deadline.
+ * Both infos are pushed to a receive address one after the other by the same task,
+ * so they share the connection kept warm by RecvAddrConnectionKeeper.
+ * Receive addresses considered dead by RecvAddrConnectionKeeper are pushed to after
+ * the live ones, and they are not waited for.
+ * Pool size and deadline (ms) can be set by system properties
+ * cmrestapi.push.threads and cmrestapi.push.deadline.
+ * Created on: 2026/10/17
+ */
+public class InfoPushDispatcher {
+    private static final int THREADS = Integer.getInteger("cmrestapi.push.threads", 32);
+    private static final int QUEUE_SIZE = 4096;
+    private static final long DEADLINE = Long.getLong("cmrestapi.push.deadline", 3000L);
+    private static final int STATUS_FAILED = -1;
+    private static final int STATUS_TIMEOUT = -2;
+    private final ThreadPoolExecutor pushPool;
+    private Logger logger = LoggerFactory.getLogger(InfoPushDispatcher.class);
+
+    public InfoPushDispatcher() {
+        AtomicInteger threadNo = new AtomicInteger();
+        pushPool = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+                    Thread thread = new Thread(r, "InfoPushThread-" + threadNo.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pushPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @Title: PushResult
+     * @author: agent
+     * @Description: Result of pushing info to one receive address.
+     * Created on: 2026/10/17
+     */
+    static class PushResult {
+        final String url;
+        final String infoType;
+        int statusCode = STATUS_TIMEOUT;
+        long latency;
+        // System.nanoTime() when push was submitted, started and finished, 0 if not yet
+        long submittedAt;
+        long startedAt;
+        long finishedAt;
+
+        PushResult(String url, String infoType) {
+            this.url = url;
+            this.infoType = infoType;
+        }
+
+        boolean isSuccess() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+
+        /**
+         * @Title: getStatus
+         * @Description:
+         * Get readable status of push.
+         * @return
+         * String: timeout, failed or http status code
+         */
+        String getStatus() {
+            return statusCode == STATUS_TIMEOUT ? "timeout"
+                    : statusCode == STATUS_FAILED ? "failed" : String.valueOf(statusCode);
+        }
+
+        @Override
+        public String toString() {
+            return infoType + " -> " + url + ": " + getStatus() + ", " + latency + "ms";
+        }
+    }
+
+    /**
+     * @Title: dispatch
+     * @Description:
+     * Push master info and standby info to all receive addresses, return when
+     * all pushes to live receive addresses finished or deadline reached.
+     * @param masterInfo
+     * @param standbyInfo
+     * @param recvAddrList
+     * @return
+     * List<PushResult>: one result per receive address and info type, pushes to dead
+     * receive addresses may still be running
+     */
+    public List<PushResult> dispatch(String masterInfo, String standbyInfo, Collection<String> recvAddrList) {
+        long start = System.nanoTime();
+        List<PushResult> pushResults = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<String> deadUrls = new ArrayList<>();
+        RecvAddrConnectionKeeper keeper = CMRestAPI.recvAddrConnectionKeeper;
+        for (String url : recvAddrList) {
+            if (keeper != null && keeper.isDead(url)) {
+                deadUrls.add(url);
+            } else {
+                futures.add(submit(url, masterInfo, standbyInfo, pushResults));
+            }
+        }
+        if (!deadUrls.isEmpty()) {
+            logger.warn("Pushing to dead receive addresses {} without waiting.", deadUrls);
+            for (String url : deadUrls) {
+                submit(url, masterInfo, standbyInfo, pushResults);
+            }
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(DEADLINE, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.error("Not all pushes finished in {}ms.", DEADLINE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Error when push info.\nDetail:", e);
+        }
+        int successCount = 0;
+        synchronized (pushResults) {
+            for (PushResult pushResult : pushResults) {
+                if (pushResult.isSuccess()) {
+                    ++successCount;
+                }
+                logger.info("Push result: {}.", pushResult);
+            }
+        }
+        logger.info("Pushed info to {} receive addresses, {}/{} pushes succeeded in {}ms.", recvAddrList.size(),
+                successCount, pushResults.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return pushResults;
+    }
+
+    private CompletableFuture<Void> submit(String url, String masterInfo, String standbyInfo,
+            List<PushResult> pushResults) {
+        long start = System.nanoTime();
+        PushResult masterResult = new PushResult(url, "MasterInfo");
+        PushResult standbyResult = new PushResult(url, "StandbyInfo");
+        synchronized (pushResults) {
+            masterResult.submittedAt = start;
+            standbyResult.submittedAt = start;
+            pushResults.add(masterResult);
+            pushResults.add(standbyResult);
+        }
+        try {
+            return CompletableFuture.runAsync(() -> {
+                CMRestAPIClient client = new CMRestAPIClient(url);
+                push(masterResult, start, pushResults, () -> client.pushMasterInfo(masterInfo));
+                push(standbyResult, start, pushResults, () -> client.pushStandbysInfo(standbyInfo));
+            }, pushPool);
+        } catch (RejectedExecutionException e) {
+            logger.error("Too many pushes are waiting, reject pushing to {}.", url);
+            synchronized (pushResults) {
+                masterResult.statusCode = STATUS_FAILED;
+                standbyResult.statusCode = STATUS_FAILED;
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private static void push(PushResult pushResult, long start, List<PushResult> pushResults, IntSupplier push) {
+        synchronized (pushResults) {
+            pushResult.startedAt = System.nanoTime();
+        }
+        int statusCode = push.getAsInt();
+        long finishedAt = System.nanoTime();
+        synchronized (pushResults) {
+            pushResult.statusCode = statusCode;
+            pushResult.latency = TimeUnit.NANOSECONDS.toMillis(finishedAt - start);
+            pushResult.finishedAt = finishedAt;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.gson.Gson;
+
+/**
+ * @Title: JsonPayload
+ * @author: agent
+ * @Description:
+ * Model serialized to json once, together with an ETag derived from its content and
+ * its gzip compressed form, so that it can be sent to many clients without serializing
+ * or compressing it again. The gzip compressed form is a different representation,
+ * its ETag carries suffix -gz.
+ * Created on: 2026/10/17
+ */
+public class JsonPayload {
+    private static final Gson GSON = new Gson();
+    private static final int ETAG_BYTES = 16;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final String GZIP_ETAG_SUFFIX = "-gz";
+    private final byte[] json;
+    private final String etag;
+    private final String gzipEtag;
+    private volatile byte[] gzipJson;
+
+    private JsonPayload(byte[] json, String etag) {
+        this.json = json;
+        this.etag = etag;
+        this.gzipEtag = etag.substring(0, etag.length() - 1) + GZIP_ETAG_SUFFIX + '"';
+    }
+
+    /**
+     * @Title: of
+     * @Description:
+     * Serialize model to json.
+     * @param model
+     * @return
+     * JsonPayload
+     */
+    public static JsonPayload of(Object model) {
+        byte[] json = GSON.toJson(model).getBytes(StandardCharsets.UTF_8);
+        return new JsonPayload(json, computeEtag(json));
+    }
+
+    /**
+     * @Title: reuse
+     * @Description:
+     * Return previous payload instead of this one if their content is the same,
+     * so that compressed form of previous payload is kept.
+     * @param previous
+     * @return
+     * JsonPayload
+     */
+    public JsonPayload reuse(JsonPayload previous) {
+        if (previous != null && previous.etag.equals(etag) && Arrays.equals(previous.json, json)) {
+            return previous;
+        }
+        return this;
+    }
+
+    private static String computeEtag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            char[] etag = new char[ETAG_BYTES * 2 + 2];
+            etag[0] = '"';
+            for (int i = 0; i < ETAG_BYTES; i++) {
+                etag[i * 2 + 1] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+                etag[i * 2 + 2] = HEX_DIGITS[digest[i] & 0xf];
+            }
+            etag[etag.length - 1] = '"';
+            return new String(etag);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is provided by every java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getGzipEtag() {
+        return gzipEtag;
+    }
+
+    /**
+     * @Title: getGzipJson
+     * @Description:
+     * Get gzip compressed json, it is compressed at first call.
+     * @return
+     * byte[]
+     */
+    public byte[] getGzipJson() {
+        byte[] compressed = gzipJson;
+        if (compressed == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 32);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            } catch (IOException e) {
+                // never happens when writing to memory
+                throw new IllegalStateException(e);
+            }
+            compressed = out.toByteArray();
+            gzipJson = compressed;
+        }
+        return compressed;
+    }
+
+    /**
+     * @Title: acceptsGzip
+     * @Description:
+     * Check whether Accept-Encoding header allows gzip.
+     * @param acceptEncoding
+     * @return
+     * boolean
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        int index = acceptEncoding.indexOf("gzip");
+        if (index < 0) {
+            return false;
+        }
+        int end = acceptEncoding.indexOf(',', index);
+        String params = acceptEncoding.substring(index + "gzip".length(), end < 0 ? acceptEncoding.length() : end);
+        return !params.replace(" ", "").matches(";q=0(\\.0*)?");
+    }
+
+    /**
+     * @Title: matches
+     * @Description:
+     * Check whether If-None-Match header matches ETag of this payload or of its gzip compressed form.
+     * @param ifNoneMatch: comma separated list of ETags, weak ones are compared weakly
+     * @return
+     * boolean
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        int begin = 0;
+        int length = ifNoneMatch.length();
+        while (begin < length) {
+            int end = ifNoneMatch.indexOf(',', begin);
+            if (end < 0) {
+                end = length;
+            }
+            int tagBegin = begin;
+            int tagEnd = end;
+            while (tagBegin < tagEnd && ifNoneMatch.charAt(tagBegin) == ' ') {
+                tagBegin++;
+            }
+            while (tagEnd > tagBegin && ifNoneMatch.charAt(tagEnd - 1) == ' ') {
+                tagEnd--;
+            }
+            if (ifNoneMatch.startsWith("W/", tagBegin)) {
+                tagBegin += 2;
+            }
+            if ((tagEnd - tagBegin == 1 && ifNoneMatch.charAt(tagBegin) == '*')
+                    || isTag(ifNoneMatch, tagBegin, tagEnd, etag) || isTag(ifNoneMatch, tagBegin, tagEnd, gzipEtag)) {
+                return true;
+            }
+            begin = end + 1;
+        }
+        return false;
+    }
+
+    private static boolean isTag(String ifNoneMatch, int tagBegin, int tagEnd, String tag) {
+        return tagEnd - tagBegin == tag.length() && ifNoneMatch.startsWith(tag, tagBegin);
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * @Title: LiteHttpServer
+ * @author: agent
+ * @Description:
+ * Server on the http server of JDK, used instead of CMRestAPIServer when system property
+ * cmrestapi.server.mode is lite. It serves the same routes by CMRestAPIHandler without starting
+ * Spring, so that it starts in a fraction of the time and memory.
+ * Port and bind address are set by system properties server.port and server.address as in Spring,
+ * number of handler threads by cmrestapi.lite.threads.
+ * Errors are answered with the same status and json body as the default error page of Spring.
+ * Created on: 2026/10/17
+ */
+public class LiteHttpServer {
+    private static final String CONTEXT_PATH = "/CMRestAPI";
+    private static final String UNMATCHED_ROUTE = "unmatched";
+    private static final String GET = "GET";
+    private static final String PUT = "PUT";
+    private static final String POST = "POST";
+    private static final String DELETE = "DELETE";
+    private static final int PORT = Integer.getInteger("server.port", 8080);
+    private static final String ADDRESS = System.getProperty("server.address");
+    private static final int THREADS = Integer.getInteger("cmrestapi.lite.threads", 16);
+    private static final int MAX_BODY_SIZE = 1024 * 1024;
+    private static final int MAX_SWALLOW_SIZE = 2 * 1024 * 1024;
+    private static final String ERROR_CONTENT_TYPE = "application/json";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx");
+    private static final Map<Integer, String> REASONS = new HashMap<>();
+    static {
+        REASONS.put(HttpURLConnection.HTTP_BAD_REQUEST, "Bad Request");
+        REASONS.put(HttpURLConnection.HTTP_NOT_FOUND, "Not Found");
+        REASONS.put(HttpURLConnection.HTTP_BAD_METHOD, "Method Not Allowed");
+        REASONS.put(HttpURLConnection.HTTP_INTERNAL_ERROR, "Internal Server Error");
+    }
+    private final Map<String, Map<String, Action>> routes = new HashMap<>();
+    private final CMRestAPIHandler handler = new CMRestAPIHandler();
+    private final ClientIpResolver clientIpResolver = new ClientIpResolver();
+    private HttpServer server;
+    private ExecutorService executor;
+    private Logger logger = LoggerFactory.getLogger(LiteHttpServer.class);
+
+    /**
+     * @Title: Action
+     * @author: agent
+     * @Description: Handler of one route and method.
+     * Created on: 2026/10/17
+     */
+    private interface Action {
+        void handle(Request request) throws IOException;
+    }
+
+    /**
+     * @Title: BadRequestException
+     * @author: agent
+     * @Description: Missing or invalid request parameter.
+     * Created on: 2026/10/17
+     */
+    private static class BadRequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BadRequestException(String msg) {
+            super(msg);
+        }
+    }
+
+    public LiteHttpServer() {
+        route(GET, "/ClusterStatus", request -> {
+            if (request.isWatch()) {
+                request.sendAsync(handler.watchClusterStatus(request.clientIp, request::getHeader,
+                        request.getLong("version"), request.getLong("timeout")));
+            } else {
+                request.send(handler.getClusterStatus(request.clientIp, request::getHeader));
+            }
+        });
+        route(GET, "/NodeStatus", request -> {
+            String nodeId = request.getParam("nodeId");
+            boolean all = request.getParam("all") != null;
+            if (request.isWatch()) {
+                request.sendAsync(handler.watchNodeStatus(request.clientIp, request::getHeader, nodeId, all,
+                        request.getLong("version"), request.getLong("timeout")));
+            } else {
+                request.send(handler.getNodeStatus(request.clientIp, request::getHeader, nodeId, all));
+            }
+        });
+        route(GET, "/FailoverTraces", request -> request.send(handler.getFailoverTraces(request.clientIp,
+                request::getHeader, (int) request.getLong("limit"))));
+        route(GET, "/Metrics", request -> request.send(handler.getMetrics()));
+        route(GET, "/Events", this::subscribeEvents);
+        route(PUT, "/RecvAddr", request -> {
+            String url = request.getParam("url");
+            if (url == null) {
+                throw new BadRequestException("Parameter url is required!");
+            }
+            String app = request.getParam("app");
+            request.sendAsync(handler.registerRecvAddr(request.clientIp, app == null ? "" : app, url));
+        });
+        route(DELETE, "/RecvAddr", request -> {
+            String app = request.getParam("app");
+            request.sendAsync(handler.unregisterRecvAddr(request.clientIp, app == null ? "" : app));
+        });
+        route(POST, "/RecvAddrBatch", request -> request.sendAsync(handler.batchRecvAddr(request.clientIp,
+                request.readBody())));
+    }
+
+    private void route(String method, String path, Action action) {
+        routes.computeIfAbsent(CONTEXT_PATH + path, key -> new LinkedHashMap<>()).put(method, action);
+    }
+
+    /**
+     * @Title: start
+     * @Description:
+     * Bind port and start serving requests.
+     * @throws IOException if port can not be bound
+     * void
+     */
+    public void start() throws IOException {
+        logger.info("Starting lite http server on port {}, threads={}.", PORT, THREADS);
+        InetSocketAddress address = ADDRESS == null ? new InetSocketAddress(PORT) : new InetSocketAddress(ADDRESS, PORT);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread thread = new Thread(r, "LiteHttpServer-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::dispatch);
+        server.start();
+    }
+
+    private void dispatch(HttpExchange exchange) {
+        Request request = new Request(exchange);
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (path.length() > 1 && path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            ApiResponse rejection = handler.authorize(request.clientIp, path);
+            if (rejection != null) {
+                request.send(rejection);
+                return;
+            }
+            Map<String, Action> actions = routes.get(path);
+            if (actions == null) {
+                request.sendError(HttpURLConnection.HTTP_NOT_FOUND);
+                return;
+            }
+            Action action = actions.get(request.method);
+            if (action == null) {
+                request.send(request.getError(HttpURLConnection.HTTP_BAD_METHOD)
+                        .header("Allow", String.join(", ", actions.keySet())));
+                return;
+            }
+            request.route = path;
+            action.handle(request);
+        } catch (BadRequestException e) {
+            logger.info("Bad request from {}: {}", request.clientIp, e.getMessage());
+            request.sendError(HttpURLConnection.HTTP_BAD_REQUEST);
+        } catch (IOException e) {
+            logger.info("Failed to answer request from {}: {}.", request.clientIp, e.getMessage());
+            request.close(HttpURLConnection.HTTP_INTERNAL_ERROR);
+        } catch (RuntimeException e) {
+            logger.error("Error when handle request from {}.\nDetail:", request.clientIp, e);
+            request.sendError(HttpURLConnection.HTTP_INTERNAL_ERROR);
+        }
+    }
+
+    private void subscribeEvents(Request request) {
+        ExchangeEventSink sink = new ExchangeEventSink(request);
+        ClusterEventBus.Subscriber subscriber = handler.subscribeEvents(request.clientIp, sink,
+                request.getHeader("Last-Event-ID"));
+        if (subscriber == null) {
+            request.send(ApiResponse.empty(HttpURLConnection.HTTP_UNAVAILABLE));
+            return;
+        }
+        sink.subscriber = subscriber;
+        try {
+            sink.open();
+        } catch (IOException e) {
+            logger.info("Event subscriber disconnected: {}.", e.getMessage());
+            sink.close();
+        }
+    }
+
+    private static long parseLong(String name, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + name + " " + value + "!");
+        }
+    }
+
+    /**
+     * @Title: Request
+     * @author: agent
+     * @Description: Exchange being handled, its parsed parameters and metrics labels.
+     * Created on: 2026/10/17
+     */
+    private class Request {
+        private final HttpExchange exchange;
+        private final long start = System.nanoTime();
+        private final String clientIp;
+        private final String method;
+        private Map<String, String> params;
+        private String route = UNMATCHED_ROUTE;
+
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.clientIp = clientIpResolver.resolve(this::getHeader,
+                    exchange.getRemoteAddress().getAddress().getHostAddress());
+            this.method = exchange.getRequestMethod();
+        }
+
+        String getHeader(String name) {
+            return exchange.getRequestHeaders().getFirst(name);
+        }
+
+        /**
+         * @Title: getParam
+         * @Description:
+         * Get query parameter, values of a parameter given more than once are joined by comma.
+         * @param name
+         * @return
+         * String: null if not provided, empty if provided without value
+         */
+        String getParam(String name) {
+            if (params == null) {
+                params = parseQuery(exchange.getRequestURI().getRawQuery());
+            }
+            return params.get(name);
+        }
+
+        long getLong(String name) {
+            String value = getParam(name);
+            return value == null || value.isEmpty() ? 0L : parseLong(name, value);
+        }
+
+        boolean isWatch() {
+            return "true".equals(getParam("watch"));
+        }
+
+        /**
+         * @Title: readBody
+         * @Description:
+         * Read request body as UTF-8 string.
+         * @return
+         * String: null if body is larger than MAX_BODY_SIZE, which is rejected as invalid body
+         * @throws IOException if connection is broken
+         */
+        String readBody() throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            try (InputStream in = exchange.getRequestBody()) {
+                int length;
+                long size = 0L;
+                while ((length = in.read(buffer)) > 0) {
+                    size += length;
+                    // the rest is read and dropped as Tomcat swallows it, so that the client gets the response
+                    if (size > MAX_BODY_SIZE) {
+                        if (size > MAX_SWALLOW_SIZE) {
+                            break;
+                        }
+                        continue;
+                    }
+                    body.write(buffer, 0, length);
+                }
+                if (size > MAX_BODY_SIZE) {
+                    logger.info("Request body from {} is larger than {} bytes.", clientIp, MAX_BODY_SIZE);
+                    return null;
+                }
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @Title: getError
+         * @Description:
+         * Get error response in the format of Spring, such as
+         * {"timestamp":"2022-11-04T00:00:00.000+00:00","status":400,"error":"Bad Request","path":"/CMRestAPI/RecvAddr"}.
+         * @param status
+         * @return
+         * ApiResponse
+         */
+        ApiResponse getError(int status) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("timestamp", OffsetDateTime.now(ZoneOffset.UTC).format(TIMESTAMP_FORMAT));
+            error.put("status", status);
+            error.put("error", REASONS.get(status));
+            error.put("path", exchange.getRequestURI().getPath());
+            return new ApiResponse(status, ERROR_CONTENT_TYPE, new Gson().toJson(error).getBytes(StandardCharsets.UTF_8));
+        }
+
+        void sendError(int status) {
+            send(getError(status));
+        }
+
+        /**
+         * @Title: send
+         * @Description:
+         * Send response and close exchange.
+         * @param response
+         * void
+         */
+        void send(ApiResponse response) {
+            try {
+                for (Map.Entry<String, String> header : response.headers.entrySet()) {
+                    exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+                }
+                exchange.sendResponseHeaders(response.status, response.body == null ? -1 : response.body.length);
+                if (response.body != null) {
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(response.body);
+                    }
+                }
+            } catch (IOException e) {
+                logger.info("Failed to send response to {}: {}.", clientIp, e.getMessage());
+            } finally {
+                close(response.status);
+            }
+        }
+
+        /**
+         * @Title: sendAsync
+         * @Description:
+         * Send response on handler thread when it is ready.
+         * @param future
+         * void
+         */
+        void sendAsync(CompletableFuture<ApiResponse> future) {
+            future.whenCompleteAsync((response, exp) -> {
+                if (exp != null) {
+                    logger.error("Error when handle request from {}.\nDetail:", clientIp, exp);
+                    sendError(HttpURLConnection.HTTP_INTERNAL_ERROR);
+                } else {
+                    send(response);
+                }
+            }, executor);
+        }
+
+        void close(int status) {
+            exchange.close();
+            Metrics.HTTP_DURATION.labels(route, method).observeSince(start);
+            Metrics.HTTP_TOTAL.labels(route, method, String.valueOf(status)).inc();
+        }
+    }
+
+    private Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int index = pair.indexOf('=');
+            try {
+                String name = decode(index < 0 ? pair : pair.substring(0, index));
+                String value = index < 0 ? "" : decode(pair.substring(index + 1));
+                params.merge(name, value, (previous, latest) -> previous + "," + latest);
+            } catch (IllegalArgumentException e) {
+                // ignored as Tomcat does
+                logger.info("Ignored invalid parameter {}.", pair);
+            }
+        }
+        return params;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * @Title: ExchangeEventSink
+     * @author: agent
+     * @Description: Event subscriber connection held by an exchange, whose response is streamed
+     * in chunks. Response headers are sent before the first event.
+     * Created on: 2026/10/17
+     */
+    private static class ExchangeEventSink implements EventSink {
+        private final Request request;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private volatile ClusterEventBus.Subscriber subscriber;
+        private OutputStream out;
+
+        ExchangeEventSink(Request request) {
+            this.request = request;
+        }
+
+        synchronized void open() throws IOException {
+            if (out == null) {
+                request.exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+                request.exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                request.exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+                out = request.exchange.getResponseBody();
+            }
+        }
+
+        @Override
+        public synchronized void send(byte[] frame) throws IOException {
+            open();
+            out.write(frame);
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            if (subscriber != null) {
+                CMRestAPI.clusterEventBus.unsubscribe(subscriber);
+            }
+            request.close(HttpURLConnection.HTTP_OK);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @Title: Metrics
+ * @author: agent
+ * @Description:
+ * In-process metrics exported in Prometheus text format.
+ * Counters and histogram buckets are LongAdders, so recording is lock-free and cheap
+ * enough for every command execution and request. Histograms have fixed log-linear
+ * buckets (1, 2.5, 5 per decade) from 0.5ms to 60s, durations are exported in seconds.
+ * Created on: 2026/10/17
+ */
+public final class Metrics {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final List<Family<?>> FAMILIES = new ArrayList<>();
+
+    public static final Family<Histogram> EXEC_DURATION = histogram("cmrestapi_exec_duration_seconds",
+            "Duration of openGauss command executions.", "command", "action");
+    public static final Family<Counter> EXEC_TOTAL = counter("cmrestapi_exec_total",
+            "openGauss command executions by result: ok, error, timeout or failed to execute.",
+            "command", "action", "result");
+    public static final Family<Counter> EXEC_COALESCED = counter("cmrestapi_exec_coalesced_total",
+            "Query commands which shared the result of an execution in flight.");
+    public static final Family<Counter> EXEC_REJECTED = counter("cmrestapi_exec_rejected_total",
+            "openGauss commands rejected because limit and wait queue of their class were full.", "class");
+    public static final Family<Counter> PROCESS_STARTS = counter("cmrestapi_process_starts_total",
+            "Child processes started.");
+    public static final Family<Histogram> PARSE_DURATION = histogram("cmrestapi_parse_duration_seconds",
+            "Duration of parsing command output.", "output");
+    public static final Family<Histogram> HTTP_DURATION = histogram("cmrestapi_http_request_duration_seconds",
+            "Duration of http requests served.", "route", "method");
+    public static final Family<Counter> HTTP_TOTAL = counter("cmrestapi_http_requests_total",
+            "Http requests served by status code.", "route", "method", "code");
+    public static final Family<Counter> HTTP_THROTTLED = counter("cmrestapi_http_throttled_total",
+            "Http requests rejected with 429 by rate limit of client and route.", "route");
+    public static final Family<Histogram> PUSH_DURATION = histogram("cmrestapi_push_duration_seconds",
+            "Duration of pushing info to receive addresses.", "info");
+    public static final Family<Counter> PUSH_TOTAL = counter("cmrestapi_push_total",
+            "Pushes to receive addresses by result: ok, error or failed to access.", "info", "result");
+    public static final Family<Counter> FAILOVER_TOTAL = counter("cmrestapi_failover_total",
+            "Role changes to primary seen by this node.");
+    public static final Family<Counter> FAILOVER_UNACKED_PUSHES = counter("cmrestapi_failover_unacked_pushes_total",
+            "Failover pushes not acknowledged by receivers within the deadline.");
+    public static final Family<Histogram> FAILOVER_NOTIFY_DURATION = histogram(
+            "cmrestapi_failover_notify_duration_seconds",
+            "Time from seeing role change to primary to the last receiver acknowledging.");
+
+    private Metrics() {
+    }
+
+    /**
+     * @Title: Counter
+     * @author: agent
+     * @Description: Monotonic counter.
+     * Created on: 2026/10/17
+     */
+    public static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        public void inc() {
+            count.increment();
+        }
+
+        public void add(long delta) {
+            count.add(delta);
+        }
+
+        long get() {
+            return count.sum();
+        }
+    }
+
+    /**
+     * @Title: Histogram
+     * @author: agent
+     * @Description: Duration histogram with fixed log-linear buckets.
+     * Created on: 2026/10/17
+     */
+    public static final class Histogram {
+        private static final double[] BOUNDS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1,
+            0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+        private static final long[] BOUND_NANOS = new long[BOUNDS.length];
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        static {
+            for (int i = 0; i < BOUNDS.length; ++i) {
+                BOUND_NANOS[i] = (long) (BOUNDS[i] * TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; ++i) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * @Title: observe
+         * @Description:
+         * Record a duration.
+         * @param nanos
+         * void
+         */
+        public void observe(long nanos) {
+            int index = Arrays.binarySearch(BOUND_NANOS, nanos);
+            // bucket i counts durations in (BOUNDS[i - 1], BOUNDS[i]]
+            buckets[index >= 0 ? index : -index - 1].increment();
+            sumNanos.add(nanos);
+        }
+
+        /**
+         * @Title: observeSince
+         * @Description:
+         * Record duration from start till now.
+         * @param startNanos: got by System.nanoTime()
+         * void
+         */
+        public void observeSince(long startNanos) {
+            observe(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * @Title: Family
+     * @author: agent
+     * @Description: Metric of one name, one child per combination of label values.
+     * Created on: 2026/10/17
+     */
+    public static final class Family<T> {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final String[] labelNames;
+        private final Supplier<T> factory;
+        private final Map<List<String>, T> children = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String type, String[] labelNames, Supplier<T> factory) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelNames = labelNames;
+            this.factory = factory;
+        }
+
+        /**
+         * @Title: labels
+         * @Description:
+         * Get child of the given label values, which should come from a small fixed set.
+         * @param labelValues
+         * @return
+         * T
+         */
+        public T labels(String... labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException(name + " expects labels " + Arrays.toString(labelNames));
+            }
+            List<String> key = Arrays.asList(labelValues);
+            T child = children.get(key);
+            if (child == null) {
+                child = children.computeIfAbsent(key, k -> factory.get());
+            }
+            return child;
+        }
+
+        private void writeTo(StringBuilder sb) {
+            sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (Map.Entry<List<String>, T> entry : children.entrySet()) {
+                T child = entry.getValue();
+                if (child instanceof Counter) {
+                    sb.append(name);
+                    appendLabels(sb, entry.getKey(), null);
+                    sb.append(' ').append(((Counter) child).get()).append('\n');
+                } else {
+                    writeHistogram(sb, entry.getKey(), (Histogram) child);
+                }
+            }
+        }
+
+        private void writeHistogram(StringBuilder sb, List<String> labelValues, Histogram histogram) {
+            // read buckets before sum, so count and sum are at worst slightly ahead of buckets
+            long cumulative = 0;
+            for (int i = 0; i < histogram.buckets.length; ++i) {
+                cumulative += histogram.buckets[i].sum();
+                sb.append(name).append("_bucket");
+                appendLabels(sb, labelValues, i < Histogram.BOUNDS.length ? formatDouble(Histogram.BOUNDS[i]) : "+Inf");
+                sb.append(' ').append(cumulative).append('\n');
+            }
+            sb.append(name).append("_sum");
+            appendLabels(sb, labelValues, null);
+            sb.append(' ').append(formatDouble(histogram.sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1)))
+                    .append('\n');
+            sb.append(name).append("_count");
+            appendLabels(sb, labelValues, null);
+            sb.append(' ').append(cumulative).append('\n');
+        }
+
+        private void appendLabels(StringBuilder sb, List<String> labelValues, String le) {
+            if (labelNames.length == 0 && le == null) {
+                return;
+            }
+            sb.append('{');
+            for (int i = 0; i < labelNames.length; ++i) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(labelNames[i]).append("=\"");
+                appendEscaped(sb, labelValues.get(i));
+                sb.append('"');
+            }
+            if (le != null) {
+                if (labelNames.length > 0) {
+                    sb.append(',');
+                }
+                sb.append("le=\"").append(le).append('"');
+            }
+            sb.append('}');
+        }
+    }
+
+    private static synchronized <T> Family<T> register(Family<T> family) {
+        FAMILIES.add(family);
+        return family;
+    }
+
+    private static Family<Counter> counter(String name, String help, String... labelNames) {
+        return register(new Family<>(name, help, "counter", labelNames, Counter::new));
+    }
+
+    private static Family<Histogram> histogram(String name, String help, String... labelNames) {
+        return register(new Family<>(name, help, "histogram", labelNames, Histogram::new));
+    }
+
+    private static void appendEscaped(StringBuilder sb, String value) {
+        String str = value == null ? "" : value;
+        for (int i = 0; i < str.length(); ++i) {
+            char c = str.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private static String formatDouble(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * @Title: export
+     * @Description:
+     * Export all metrics in Prometheus text format.
+     * @return
+     * String
+     */
+    public static synchronized String export() {
+        StringBuilder sb = new StringBuilder(8192);
+        for (Family<?> family : FAMILIES) {
+            family.writeTo(sb);
+        }
+        return sb.toString();
+    }
+}
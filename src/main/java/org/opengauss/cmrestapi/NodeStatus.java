@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+/**
+ * @Title: NodeStatus
+ * @author: agent
+ * @Description:
+ * Database node status.
+ * Created on: 2026/10/17
+ */
+class NodeStatus {
+    int nodeId;
+    String nodeIp;
+    String cmServerState;
+    String dnRole;
+    String dnState;
+    public NodeStatus(int nodeId, String nodeIp, String cmServerState, String dnRole, String dnState) {
+        this.nodeId = nodeId;
+        this.nodeIp = nodeIp;
+        this.cmServerState = cmServerState;
+        this.dnRole = dnRole;
+        this.dnState = dnState;
+    }
+}
@@ -14,11 +14,15 @@
  */
 package org.opengauss.cmrestapi;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,11 +37,49 @@ import org.slf4j.LoggerFactory;
  * Created on: 2022/09/08
  */
 public class OGCmdExecuter {
+    private static final String EXEC_MODE = System.getProperty("cmrestapi.exec.mode", "direct");
+    private static final int CMD_TIMEOUT = 5;
+    private static final Pattern SHELL_SAFE_ARG = Pattern.compile("[\\w./:=@%+,-]+");
+    private static final CmdSingleFlight SINGLE_FLIGHT = new CmdSingleFlight();
+    private static final CmdLimiter LIMITER = new CmdLimiter();
+    private static ShellWorkerPool shellWorkerPool = null;
+    private static OGEnvironment ogEnvironment = null;
     private final String SOURCE_ENV_CMD;
+    private ShellWorkerPool workerPool = null;
+    private OGEnvironment environment = null;
     private static Logger logger = LoggerFactory.getLogger(OGCmdExecuter.class);
 
+    /**
+     * @Title: OGCmdExecuter
+     * @Description:
+     * By default, commands are launched directly with environment resolved from envFile.
+     * System property cmrestapi.exec.mode selects other modes:
+     *     shell: executed by "/bin/sh -c" after sourcing envFile.
+     *     pool: executed by shared long-lived shells which have sourced envFile already.
+     * @param envFile
+     */
     public OGCmdExecuter(String envFile) {
         this.SOURCE_ENV_CMD = "source " + envFile + "; ";
+        if ("pool".equals(EXEC_MODE)) {
+            this.workerPool = getShellWorkerPool(envFile);
+        } else if (!"shell".equals(EXEC_MODE)) {
+            this.environment = getOGEnvironment(envFile);
+        }
+    }
+
+    private static synchronized OGEnvironment getOGEnvironment(String envFile) {
+        if (ogEnvironment == null) {
+            ogEnvironment = new OGEnvironment(envFile);
+            ogEnvironment.getEnvironment();
+        }
+        return ogEnvironment;
+    }
+
+    private static synchronized ShellWorkerPool getShellWorkerPool(String envFile) {
+        if (shellWorkerPool == null) {
+            shellWorkerPool = new ShellWorkerPool(envFile);
+        }
+        return shellWorkerPool;
     }
 
     /**
@@ -49,10 +91,16 @@ public class OGCmdExecuter {
     static class CmdResult {
         int statusCode;
         String resultString;
+        String errorString;
         public CmdResult(int s, String res) {
             statusCode = s;
             resultString = res;
         }
+        public CmdResult(int s, String res, String err) {
+            statusCode = s;
+            resultString = res;
+            errorString = err;
+        }
     }
 
     /**
@@ -64,28 +112,213 @@ public class OGCmdExecuter {
      * CmdResult
      */
     public static CmdResult execCmd(String command) {
+        logger.debug("Excuting command: {}.",command);
+        String[] cmd = new String[]{"/bin/sh", "-c", command};
+        return await(observe(CmdRunner.run(new ProcessBuilder(cmd), 0), "sh", ""), command);
+    }
+
+    /**
+     * @Title: observe
+     * @Description:
+     * Record duration and result of command execution in metrics.
+     * @param future
+     * @param command: executable name
+     * @param action: first argument
+     * @return
+     * CompletableFuture<CmdResult>: the given future
+     */
+    private static CompletableFuture<CmdResult> observe(CompletableFuture<CmdResult> future, String command,
+            String action) {
+        long start = System.nanoTime();
+        future.whenComplete((cmdResult, exp) -> {
+            String result;
+            if (cmdResult == null) {
+                result = "failed";
+            } else if (cmdResult.statusCode == 0) {
+                result = "ok";
+            } else if (cmdResult.statusCode == 124) {
+                result = "timeout";
+            } else {
+                result = "error";
+            }
+            Metrics.EXEC_DURATION.labels(command, action).observeSince(start);
+            Metrics.EXEC_TOTAL.labels(command, action, result).inc();
+        });
+        return future;
+    }
+
+    /**
+     * @Title: await
+     * @Description:
+     * Wait for result of asynchronous command.
+     * @param future
+     * @param command
+     * @return
+     * CmdResult: null if failed to execute command
+     */
+    static CmdResult await(CompletableFuture<CmdResult> future, Object command) {
         try {
-            logger.debug("Excuting command: {}.",command);
-            String[] cmd = new String[]{"/bin/sh", "-c", command};
-            Process process = Runtime.getRuntime().exec(cmd);
-            BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            StringBuffer sb = new StringBuffer();
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line).append(System.lineSeparator());
+            CmdResult cmdResult = future.get();
+            if (cmdResult != null) {
+                logger.debug("Result:\nstatusCode: {}\nresultString: {}", cmdResult.statusCode, cmdResult.resultString);
             }
-            int statusCode = process.waitFor();
-            String resultString = sb.toString();
-            logger.debug("Result:\nstatusCode: {}\nresultString: {}", statusCode, resultString);
-            return new CmdResult(statusCode, resultString);
-        } catch (IOException | InterruptedException exp) {
-            logger.error("Exception happend when excute shell command: {}.\nDetail:\n{}", command, exp);
+            return cmdResult;
+        } catch (InterruptedException exp) {
+            logger.error("Interrupted when excute command: {}.", command);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException exp) {
+            logger.error("Exception happend when excute command: {}.\nDetail:", command, exp);
         }
         return null;
     }
-    
-    private String getCmctlCmd(String action, String options) {
-        return "cm_ctl " + action + " " + options;
+
+    /**
+     * @Title: execDirectAsync
+     * @Description:
+     * Launch command directly with environment of envFile, without shell.
+     * @param timeout: seconds, no limit if timeout <= 0
+     * @param argv
+     * @return
+     * CompletableFuture<CmdResult>: statusCode is 124 if timeout
+     */
+    private CompletableFuture<CmdResult> execDirectAsync(int timeout, List<String> argv) {
+        Map<String, String> env = environment.getEnvironment();
+        if (env == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<String> cmd = new ArrayList<>(argv);
+        cmd.set(0, environment.resolveExecutable(cmd.get(0)));
+        logger.debug("Excuting command: {}.", cmd);
+        ProcessBuilder processBuilder = new ProcessBuilder(cmd);
+        processBuilder.environment().clear();
+        processBuilder.environment().putAll(env);
+        return CmdRunner.run(processBuilder, TimeUnit.SECONDS.toMillis(timeout));
+    }
+
+    /**
+     * @Title: toShellCmd
+     * @Description:
+     * Build shell command line, arguments are quoted if necessary.
+     * @param timeout: seconds, no limit if timeout <= 0
+     * @param argv
+     * @return
+     * String
+     */
+    private static String toShellCmd(int timeout, List<String> argv) {
+        StringBuilder sb = new StringBuilder();
+        if (timeout > 0) {
+            sb.append("timeout ").append(timeout).append(' ');
+        }
+        for (int i = 0; i < argv.size(); ++i) {
+            String arg = argv.get(i);
+            if (i > 0) {
+                sb.append(' ');
+            }
+            if (SHELL_SAFE_ARG.matcher(arg).matches()) {
+                sb.append(arg);
+            } else {
+                sb.append('\'').append(arg.replace("'", "'\\''")).append('\'');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @Title: execOGCmdAsync
+     * @Description:
+     * Execute openGauss command with environment of envFile asynchronously,
+     * within the concurrency limit of its class. Cancelling the returned future kills the command.
+     * @param timeout: seconds, no limit if timeout <= 0
+     * @param argv
+     * @return
+     * CompletableFuture<CmdResult>: completed exceptionally with CmdRejectedException if too many
+     * commands of its class are running and waiting
+     */
+    private CompletableFuture<CmdResult> execOGCmdAsync(int timeout, List<String> argv) {
+        return LIMITER.execute(getCmdClass(argv),
+                () -> observe(launchOGCmdAsync(timeout, argv), argv.get(0), getAction(argv)));
+    }
+
+    /**
+     * @Title: getCmdClass
+     * @Description:
+     * Get class of command for concurrency limit: ddb writes, ddb reads, or queries for the rest.
+     * @param argv
+     * @return
+     * CmdClass
+     */
+    private static CmdLimiter.CmdClass getCmdClass(List<String> argv) {
+        String action = getAction(argv);
+        if (!action.startsWith("ddb")) {
+            return CmdLimiter.CmdClass.QUERY;
+        }
+        boolean isWrite = action.endsWith("--put") || action.endsWith("--delete");
+        return isWrite ? CmdLimiter.CmdClass.DDB_WRITE : CmdLimiter.CmdClass.DDB_READ;
+    }
+
+    /**
+     * @Title: getAction
+     * @Description:
+     * Get action of command for metrics, such as query or ddb --put.
+     * @param argv
+     * @return
+     * String
+     */
+    private static String getAction(List<String> argv) {
+        if (argv.size() < 2) {
+            return "";
+        }
+        String action = argv.get(1);
+        if (!"ddb".equals(action)) {
+            return action;
+        }
+        for (int i = 2; i < argv.size(); ++i) {
+            String arg = argv.get(i);
+            if (arg.startsWith("--") && !"--prefix".equals(arg)) {
+                return action + " " + arg;
+            }
+        }
+        return action;
+    }
+
+    private CompletableFuture<CmdResult> launchOGCmdAsync(int timeout, List<String> argv) {
+        if (environment != null) {
+            return execDirectAsync(timeout, argv);
+        }
+        String command = toShellCmd(timeout, argv);
+        if (workerPool != null) {
+            return CmdRunner.supply(() -> workerPool.execute(command));
+        }
+        String[] cmd = new String[]{"/bin/sh", "-c", SOURCE_ENV_CMD + command};
+        return CmdRunner.run(new ProcessBuilder(cmd), 0);
+    }
+
+    /**
+     * @Title: execOGQueryCmdAsync
+     * @Description:
+     * Execute read-only openGauss command asynchronously. Concurrent executions of
+     * the same command are coalesced into one process and share the result.
+     * @param timeout: seconds, no limit if timeout <= 0
+     * @param argv
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    private CompletableFuture<CmdResult> execOGQueryCmdAsync(int timeout, List<String> argv) {
+        return SINGLE_FLIGHT.execute(String.join(" ", argv), () -> execOGCmdAsync(timeout, argv));
+    }
+
+    private CmdResult execOGQueryCmd(int timeout, List<String> argv) {
+        return await(execOGQueryCmdAsync(timeout, argv), argv);
+    }
+
+    private List<String> getCmctlCmd(String action, String options) {
+        List<String> argv = new ArrayList<>();
+        argv.add("cm_ctl");
+        argv.add(action);
+        if (options != null && !options.trim().isEmpty()) {
+            argv.addAll(Arrays.asList(options.trim().split("\\s+")));
+        }
+        return argv;
     }
 
     /**
@@ -96,9 +329,8 @@ public class OGCmdExecuter {
      * CmdResult
      */
     public CmdResult gsctlQuery() {
-        String cmd = SOURCE_ENV_CMD + "timeout 5 "
-                + "gs_ctl query -D " + CMRestAPI.dataPath;
-        return execCmd(cmd);
+        List<String> cmd = Arrays.asList("gs_ctl", "query", "-D", CMRestAPI.dataPath);
+        return execOGQueryCmd(CMD_TIMEOUT, cmd);
     }
 
     /**
@@ -110,8 +342,21 @@ public class OGCmdExecuter {
      * CmdResult
      */
     public CmdResult cmctlQuery(String options) {
-        String cmd = SOURCE_ENV_CMD + "timeout 5 " + getCmctlCmd("query", options);
-        return execCmd(cmd);
+        List<String> cmd = getCmctlCmd("query", options);
+        return execOGQueryCmd(CMD_TIMEOUT, cmd);
+    }
+
+    /**
+     * @Title: cmctlQueryAsync
+     * @Description:
+     * cm_ctl query, asynchronously.
+     * @param options
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> cmctlQueryAsync(String options) {
+        List<String> cmd = getCmctlCmd("query", options);
+        return execOGQueryCmdAsync(CMD_TIMEOUT, cmd);
     }
     
     /**
@@ -127,8 +372,8 @@ public class OGCmdExecuter {
         if (nodeId == null || !"".equals(nodeId) ) {
             options = "-n " + nodeId;
         }
-        String cmd = SOURCE_ENV_CMD + "timeout 5 " + getCmctlCmd("view", options);
-        return execCmd(cmd);
+        List<String> cmd = getCmctlCmd("view", options);
+        return execOGQueryCmd(CMD_TIMEOUT, cmd);
     }
     
     /**
@@ -140,8 +385,8 @@ public class OGCmdExecuter {
      * CmdResult
      */
     public CmdResult cmctlViewAll() {
-        String cmd = SOURCE_ENV_CMD + "timeout 5 " + getCmctlCmd("view", null);
-        return execCmd(cmd);
+        List<String> cmd = getCmctlCmd("view", null);
+        return execOGQueryCmd(CMD_TIMEOUT, cmd);
     }
     
     /**
@@ -152,8 +397,8 @@ public class OGCmdExecuter {
      * CmdResult
      */
     public CmdResult cmctlViewNative() {
-        String cmd = SOURCE_ENV_CMD + "timeout 5 " + getCmctlCmd("view", "-N");
-        return execCmd(cmd);
+        List<String> cmd = getCmctlCmd("view", "-N");
+        return execOGQueryCmd(CMD_TIMEOUT, cmd);
     }
 
     /**
@@ -171,21 +416,30 @@ public class OGCmdExecuter {
      * @param key
      * @param value
      * @return
-     * CmdResult
+     * CompletableFuture<CmdResult>
      */
-    private CmdResult cmctlDdb(String action, boolean hasPrefix, String key, String value) {
-        String cmd = SOURCE_ENV_CMD + "cm_ctl ddb ";
+    private CompletableFuture<CmdResult> cmctlDdbAsync(String action, boolean hasPrefix, String key, String value) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add("cm_ctl");
+        cmd.add("ddb");
         if (hasPrefix) {
-            cmd += "--prefix ";
+            cmd.add("--prefix");
         }
-        cmd += action;
+        cmd.add(action);
         if (!"--cluster_info".equals(action) && !"--leader_info".equals(action)) {
-            cmd += " " + key;
+            cmd.add(key);
             if ("--put".equals(action)) {
-                cmd += " " + value;
+                cmd.add(value);
             }
         }
-        return execCmd(cmd);
+        if ("--put".equals(action) || "--delete".equals(action)) {
+            return execOGCmdAsync(CMD_TIMEOUT, cmd);
+        }
+        return execOGQueryCmdAsync(CMD_TIMEOUT, cmd);
+    }
+
+    private CmdResult cmctlDdb(String action, boolean hasPrefix, String key, String value) {
+        return await(cmctlDdbAsync(action, hasPrefix, key, value), action + " " + key);
     }
 
     /**
@@ -201,6 +455,19 @@ public class OGCmdExecuter {
         return cmctlDdb("--put", false, key, value);
     }
 
+    /**
+     * @Title: cmctlDdbPutAsync
+     * @Description:
+     * cm_ctl ddb --put key value, asynchronously.
+     * @param key
+     * @param value
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> cmctlDdbPutAsync(String key, String value) {
+        return cmctlDdbAsync("--put", false, key, value);
+    }
+
     /**
      * @Title: cmctlDdbGet
      * @Description:
@@ -250,6 +517,18 @@ public class OGCmdExecuter {
         return cmctlDdb("--delete", false, key, null);
     }
 
+    /**
+     * @Title: cmctlDdbDeleteAsync
+     * @Description:
+     * cm_ctl ddb --delete, asynchronously.
+     * @param key
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> cmctlDdbDeleteAsync(String key) {
+        return cmctlDdbAsync("--delete", false, key, null);
+    }
+
     /**
      * @Title: cmctlDdbDeletePrefix
      * @Description:
@@ -261,6 +540,18 @@ public class OGCmdExecuter {
     public CmdResult cmctlDdbDeletePrefix(String key) {
         return cmctlDdb("--delete", true, key, null);
     }
+
+    /**
+     * @Title: cmctlDdbDeletePrefixAsync
+     * @Description:
+     * cm_ctl ddb --prefix --delete, asynchronously.
+     * @param key
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> cmctlDdbDeletePrefixAsync(String key) {
+        return cmctlDdbAsync("--delete", true, key, null);
+    }
     
     /**
      * @Title: deleteRecvAddr
@@ -272,12 +563,25 @@ public class OGCmdExecuter {
      * CmdResult
      */
     public CmdResult deleteRecvAddr(String clientIp, String app) {
+        return await(deleteRecvAddrAsync(clientIp, app), "delete " + clientIp + "/" + app);
+    }
+
+    /**
+     * @Title: deleteRecvAddrAsync
+     * @Description:
+     * Delete receive address asynchronously.
+     * @param clientIp
+     * @param app
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> deleteRecvAddrAsync(String clientIp, String app) {
         String key = CMRestAPI.prefix + clientIp;
         if (app == null || "".equals(app)) {
-            return cmctlDdbDeletePrefix(key);
+            return cmctlDdbDeletePrefixAsync(key);
         }
         key += "/" + app;
-        return cmctlDdbDelete(key);
+        return cmctlDdbDeleteAsync(key);
     }
     
     /**
@@ -285,14 +589,17 @@ public class OGCmdExecuter {
      * @Description:
      * Get receive address list from dcc.
      * @return
-     * Map<String,String>: [.., {"clientIp/app", recvAddr}, ..]
+     * Map<String,String>: [.., {"clientIp/app", recvAddr}, ..], null if failed to query dcc
      */
     public Map<String, String> getRecvAddrList() {
         CmdResult cmdResult = cmctlDdbGetPrefix(CMRestAPI.prefix);
-        if (cmdResult.statusCode != 0 || cmdResult.resultString.matches("Key not found")) {
+        if (cmdResult == null || cmdResult.statusCode != 0) {
             return null;
         }
         Map<String, String> clientIpRecvAddrMap = new HashMap<>();
+        if (cmdResult.resultString.startsWith("Key not found")) {
+            return clientIpRecvAddrMap;
+        }
         Pattern pattern = Pattern.compile(CMRestAPI.prefix + "(.*[\\s]+.*)[\\s]+?");
         Matcher matcher = pattern.matcher(cmdResult.resultString);
         while (matcher.find()) {
@@ -314,11 +621,25 @@ public class OGCmdExecuter {
      * CmdResult
      */
     public CmdResult saveRecvAddr(String clientIp, String app, String recvAddr) {
+        return await(saveRecvAddrAsync(clientIp, app, recvAddr), "save " + clientIp + "/" + app);
+    }
+
+    /**
+     * @Title: saveRecvAddrAsync
+     * @Description:
+     * Save recvaddr to ddb asynchronously.
+     * @param clientIp
+     * @param app
+     * @param recvAddr
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> saveRecvAddrAsync(String clientIp, String app, String recvAddr) {
         String key = CMRestAPI.prefix + clientIp;
         if (app != null && !"".equals(app)) {
             key += "/" + app;
         }
-        return cmctlDdbPut(key, recvAddr);
+        return cmctlDdbPutAsync(key, recvAddr);
     }
 
     /**
@@ -331,6 +652,17 @@ public class OGCmdExecuter {
     public CmdResult getClusterStatus() {
         return cmctlQuery("-v");
     }
+
+    /**
+     * @Title: getClusterStatusAsync
+     * @Description:
+     * Get cluster status by executing cm_ctl query -v asynchronously.
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> getClusterStatusAsync() {
+        return cmctlQueryAsync("-v");
+    }
     
     /**
      * @Title: getNodeStatus
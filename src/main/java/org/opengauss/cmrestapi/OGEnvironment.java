@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: OGEnvironment
+ * @author: agent
+ * @Description:
+ * Environment variables defined by env file. The env file is sourced once and
+ * the resulting environment is captured by env -0, it is resolved again only
+ * when modification time of the env file changes.
+ * Created on: 2026/10/17
+ */
+public class OGEnvironment {
+    private final String envFile;
+    private volatile Map<String, String> environment = null;
+    private volatile long lastModified = 0L;
+    private final Map<String, String> executables = new ConcurrentHashMap<>();
+    private static Logger logger = LoggerFactory.getLogger(OGEnvironment.class);
+
+    public OGEnvironment(String envFile) {
+        this.envFile = envFile;
+    }
+
+    /**
+     * @Title: getEnvironment
+     * @Description:
+     * Get environment variables, resolve them again if env file was modified.
+     * @return
+     * Map<String,String>: immutable, null if env file has never been resolved successfully
+     */
+    public Map<String, String> getEnvironment() {
+        long modified = new File(envFile).lastModified();
+        if (environment == null || modified != lastModified) {
+            synchronized (this) {
+                if (environment == null || modified != lastModified) {
+                    resolve(modified);
+                }
+            }
+        }
+        return environment;
+    }
+
+    private void resolve(long modified) {
+        logger.info("Resolving environment of {}.", envFile);
+        String[] cmd = new String[]{"/bin/sh", "-c", "source " + envFile + " >/dev/null 2>&1 && env -0"};
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(cmd);
+            processBuilder.redirectError(ProcessBuilder.Redirect.to(new File("/dev/null")));
+            Process process = processBuilder.start();
+            Metrics.PROCESS_STARTS.labels().inc();
+            process.getOutputStream().close();
+            byte[] output = readAll(process.getInputStream());
+            int statusCode = process.waitFor();
+            if (statusCode != 0) {
+                logger.error("Failed to resolve environment of {}, statusCode: {}.", envFile, statusCode);
+                return;
+            }
+            Map<String, String> env = new HashMap<>();
+            for (String variable : new String(output, StandardCharsets.UTF_8).split("\0")) {
+                int index = variable.indexOf('=');
+                if (index > 0) {
+                    env.put(variable.substring(0, index), variable.substring(index + 1));
+                }
+            }
+            environment = Collections.unmodifiableMap(env);
+            lastModified = modified;
+            executables.clear();
+        } catch (IOException e) {
+            logger.error("Exception happend when resolve environment of {}.\nDetail:", envFile, e);
+        } catch (InterruptedException e) {
+            logger.error("Interrupted when resolve environment of {}.", envFile);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @Title: resolveExecutable
+     * @Description:
+     * Get absolute path of executable by searching PATH of the environment,
+     * since ProcessBuilder searches PATH of current process only.
+     * @param name
+     * @return
+     * String: name itself if it is not found
+     */
+    public String resolveExecutable(String name) {
+        Map<String, String> env = environment;
+        if (name.indexOf('/') >= 0 || env == null || env.get("PATH") == null) {
+            return name;
+        }
+        return executables.computeIfAbsent(name, key -> {
+            for (String dir : env.get("PATH").split(":")) {
+                File file = new File(dir.isEmpty() ? "." : dir, key);
+                if (file.isFile() && file.canExecute()) {
+                    return file.getAbsolutePath();
+                }
+            }
+            return key;
+        });
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: RateLimiter
+ * @author: agent
+ * @Description:
+ * Per client ip and per route token buckets, so that one noisy client can not degrade
+ * requests of others. A bucket is a single AtomicLong holding the time its tokens are used up to
+ * (generic cell rate algorithm), so a check is one map lookup and one compare-and-set without locking.
+ * Buckets idle for longer than cmrestapi.rateLimit.idleTimeout (ms, 60000) are full again and
+ * evicted periodically.
+ * Rate (requests per second) and burst of route are set by system properties
+ * cmrestapi.rateLimit.<route>.rate and cmrestapi.rateLimit.<route>.burst, such as
+ * cmrestapi.rateLimit.ClusterStatus.rate. Route is not limited if its rate is 0.
+ * Created on: 2026/10/17
+ */
+public class RateLimiter {
+    private static final long IDLE_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("cmrestapi.rateLimit.idleTimeout", 60000L));
+    private static final String[][] DEFAULT_LIMITS = {
+        // route, rate, burst
+        {"ClusterStatus", "50", "100"},
+        {"NodeStatus", "50", "100"},
+        {"RecvAddr", "5", "10"},
+        {"RecvAddrBatch", "1", "5"},
+        {"FailoverTraces", "5", "10"},
+        {"Events", "1", "5"}
+    };
+    private final Map<String, RouteLimit> routeLimits;
+    private ScheduledExecutorService evictor;
+    private static Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+
+    public RateLimiter() {
+        Map<String, RouteLimit> limits = new HashMap<>();
+        for (String[] defaultLimit : DEFAULT_LIMITS) {
+            String route = defaultLimit[0];
+            double rate = getDouble("cmrestapi.rateLimit." + route + ".rate", Double.parseDouble(defaultLimit[1]));
+            int burst = Integer.getInteger("cmrestapi.rateLimit." + route + ".burst",
+                    Integer.parseInt(defaultLimit[2]));
+            if (rate > 0) {
+                limits.put(route, new RouteLimit(rate, Math.max(1, burst)));
+            }
+        }
+        routeLimits = Collections.unmodifiableMap(limits);
+        logger.info("Rate limits: {}.", routeLimits);
+    }
+
+    private static double getDouble(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            logger.error("Invalid {}: {}, use default {}.", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @Title: RouteLimit
+     * @author: agent
+     * @Description: Rate limit of one route and buckets of its clients.
+     * Created on: 2026/10/17
+     */
+    private static class RouteLimit {
+        // time to earn one token
+        private final long interval;
+        // how far used up time may run ahead of now
+        private final long tolerance;
+        private final double rate;
+        private final int burst;
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        RouteLimit(double rate, int burst) {
+            this.rate = rate;
+            this.burst = burst;
+            this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            this.tolerance = interval * burst;
+        }
+
+        long acquire(String clientIp, long now) {
+            AtomicLong bucket = buckets.get(clientIp);
+            if (bucket == null) {
+                AtomicLong created = new AtomicLong(now);
+                bucket = buckets.putIfAbsent(clientIp, created);
+                if (bucket == null) {
+                    bucket = created;
+                }
+            }
+            for (;;) {
+                long usedUpTo = bucket.get();
+                long newUsedUpTo = Math.max(usedUpTo, now) + interval;
+                long wait = newUsedUpTo - now - tolerance;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (bucket.compareAndSet(usedUpTo, newUsedUpTo)) {
+                    return 0;
+                }
+            }
+        }
+
+        void evictIdle(long now) {
+            // a bucket removed while being acquired only gives its client one extra burst
+            buckets.values().removeIf(bucket -> now - bucket.get() > IDLE_TIMEOUT);
+        }
+
+        @Override
+        public String toString() {
+            return rate + "/s burst " + burst;
+        }
+    }
+
+    /**
+     * @Title: acquire
+     * @Description:
+     * Take a token from bucket of client for route.
+     * @param clientIp
+     * @param route: such as ClusterStatus
+     * @return
+     * long: 0 if allowed, else nanoseconds to wait before next token
+     */
+    public long acquire(String clientIp, String route) {
+        RouteLimit routeLimit = routeLimits.get(route);
+        return routeLimit == null ? 0 : routeLimit.acquire(clientIp, System.nanoTime());
+    }
+
+    /**
+     * @Title: start
+     * @Description:
+     * Start evicting idle buckets periodically.
+     * void
+     */
+    public void start() {
+        if (evictor == null && !routeLimits.isEmpty()) {
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "RateLimitEvictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            evictor.scheduleWithFixedDelay(() -> {
+                long now = System.nanoTime();
+                for (RouteLimit routeLimit : routeLimits.values()) {
+                    routeLimit.evictIdle(now);
+                }
+            }, IDLE_TIMEOUT, IDLE_TIMEOUT, TimeUnit.NANOSECONDS);
+        }
+    }
+}
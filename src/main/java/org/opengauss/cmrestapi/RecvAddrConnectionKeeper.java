@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: RecvAddrConnectionKeeper
+ * @author: agent
+ * @Description:
+ * Keep pooled connections to all registered receive addresses warm by probing them
+ * periodically, so that pushing master info on failover does not pay for connection setup.
+ * Receive addresses which fail several probes in a row are considered dead and probed
+ * much less often, until they respond again. InfoPushDispatcher pushes to dead receive
+ * addresses after the live ones and does not wait for them.
+ * Probe interval (ms) can be set by system property cmrestapi.push.probeInterval.
+ * Created on: 2026/10/17
+ */
+public class RecvAddrConnectionKeeper implements Runnable {
+    private static final long PROBE_INTERVAL = Long.getLong("cmrestapi.push.probeInterval", 10000L);
+    private static final int MAX_PROBE_FAILURES = 3;
+    private static final int DEAD_PROBE_CYCLES = 6;
+    private final String THREAD_NAME;
+    private ScheduledExecutorService scheduler;
+    private final Map<String, Integer> probeFailures = new ConcurrentHashMap<>();
+    private long probeCycle = 0L;
+    private Logger logger = LoggerFactory.getLogger(RecvAddrConnectionKeeper.class);
+
+    public RecvAddrConnectionKeeper() {
+        THREAD_NAME = "RecvAddrConnectionKeeper";
+    }
+
+    /**
+     * @Title: isDead
+     * @Description:
+     * Check whether receive address failed too many probes in a row.
+     * @param url
+     * @return
+     * boolean
+     */
+    public boolean isDead(String url) {
+        return probeFailures.getOrDefault(url, 0) >= MAX_PROBE_FAILURES;
+    }
+
+    @Override
+    public void run() {
+        try {
+            ++probeCycle;
+            Set<String> urls = new HashSet<>(CMRestAPI.recvAddrRegistry.getUrls());
+            probeFailures.keySet().retainAll(urls);
+            for (String url : urls) {
+                if (isDead(url) && probeCycle % DEAD_PROBE_CYCLES != 0) {
+                    continue;
+                }
+                if (new CMRestAPIClient(url).probe()) {
+                    if (probeFailures.remove(url) != null) {
+                        logger.info("Receive address {} is alive again.", url);
+                    }
+                    continue;
+                }
+                int failures = probeFailures.merge(url, 1, Integer::sum);
+                if (failures == MAX_PROBE_FAILURES) {
+                    logger.warn("Receive address {} failed {} probes, consider it dead.", url, failures);
+                }
+            }
+            // connections to dead or unregistered receive addresses are not used by probes any more
+            CMRestAPIClient.closeIdleConnections(PROBE_INTERVAL * 2);
+        } catch (RuntimeException e) {
+            // keep the scheduled task alive
+            logger.error("Error when probe receive addresses.\nDetail:", e);
+        }
+    }
+
+    /**
+     * @Title: start
+     * @Description:
+     * Start probing receive addresses periodically.
+     * void
+     */
+    public void start() {
+        logger.info("Starting thread {}, probeInterval={}ms.", THREAD_NAME, PROBE_INTERVAL);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this, 0, PROBE_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+/**
+ * @Title: RecvAddrEntry
+ * @author: agent
+ * @Description:
+ * Entry of batch receive address request.
+ * op: "put"(default) or "delete", url is required by put.
+ * Created on: 2026/10/17
+ */
+class RecvAddrEntry {
+    String app;
+    String url;
+    String op;
+    public RecvAddrEntry(String app, String url, String op) {
+        this.app = app;
+        this.url = url;
+        this.op = op;
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: RecvAddrRegistry
+ * @author: agent
+ * @Description:
+ * In-memory cache of receive addresses registered in dcc, so that master info can be
+ * pushed as soon as role change is detected without querying dcc first.
+ * Registrations are written through to dcc and cached only if the write succeeds,
+ * writes arriving within a short window are coalesced by RecvAddrWriteCoalescer.
+ * The cache is loaded at startup and reconciled against dcc periodically, to pick up
+ * registrations made through CMRestAPI on other nodes. Until the first load succeeds, it is
+ * retried after 1s, doubling up to the reconcile interval.
+ * Reconcile interval (ms) can be set by system property cmrestapi.recvAddr.reconcileInterval.
+ * Created on: 2026/10/17
+ */
+public class RecvAddrRegistry implements Runnable {
+    private static final long RECONCILE_INTERVAL = Long.getLong("cmrestapi.recvAddr.reconcileInterval", 30000L);
+    private static final long MIN_LOAD_RETRY_DELAY = 1000L;
+    private final String THREAD_NAME;
+    private ScheduledExecutorService scheduler;
+    private OGCmdExecuter ogCmdExecuter;
+    private final Map<String, String> recvAddrs = new ConcurrentHashMap<>();
+    // incremented on every local write, a reconcile racing with a write is discarded
+    private final AtomicLong modCount = new AtomicLong();
+    private volatile boolean loaded = false;
+    private long loadRetryDelay = MIN_LOAD_RETRY_DELAY;
+    private RecvAddrWriteCoalescer writeCoalescer;
+    private Logger logger = LoggerFactory.getLogger(RecvAddrRegistry.class);
+
+    public RecvAddrRegistry() {
+        THREAD_NAME = "RecvAddrRegistry";
+        ogCmdExecuter = new OGCmdExecuter(CMRestAPI.envFile);
+        writeCoalescer = new RecvAddrWriteCoalescer(this);
+    }
+
+    /**
+     * @Title: getKey
+     * @Description:
+     * Get cache key of receive address, which is its dcc key without prefix, as saveRecvAddrAsync builds it.
+     * @param clientIp
+     * @param app
+     * @return
+     * String: clientIp if app is empty, else clientIp/app
+     */
+    static String getKey(String clientIp, String app) {
+        return isEmpty(app) ? clientIp : clientIp + "/" + app;
+    }
+
+    static boolean isEmpty(String app) {
+        return app == null || app.isEmpty();
+    }
+
+    /**
+     * @Title: isPrefixDelete
+     * @Description:
+     * Check whether write deletes all receive addresses of clientIp, which is the case without app.
+     * @param app
+     * @param url: null means delete
+     * @return
+     * boolean
+     */
+    static boolean isPrefixDelete(String app, String url) {
+        return url == null && isEmpty(app);
+    }
+
+    /**
+     * @Title: getRecvAddrs
+     * @Description:
+     * Get cached receive addresses.
+     * @return
+     * Map<String,String>: [.., {"clientIp/app", recvAddr}, ..]
+     */
+    public Map<String, String> getRecvAddrs() {
+        return Collections.unmodifiableMap(recvAddrs);
+    }
+
+    /**
+     * @Title: getUrls
+     * @Description:
+     * Get cached receive address urls.
+     * @return
+     * Collection<String>
+     */
+    public Collection<String> getUrls() {
+        return Collections.unmodifiableCollection(recvAddrs.values());
+    }
+
+    /**
+     * @Title: getRecvAddr
+     * @Description:
+     * Get cached receive address registered by clientIp and app.
+     * @param clientIp
+     * @param app
+     * @return
+     * String: null if not registered
+     */
+    public String getRecvAddr(String clientIp, String app) {
+        return recvAddrs.get(getKey(clientIp, app));
+    }
+
+    /**
+     * @Title: isLoaded
+     * @Description:
+     * Check whether receive addresses have been loaded from dcc at least once.
+     * @return
+     * boolean
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @Title: register
+     * @Description:
+     * Save receive address to dcc, and cache it if succeeded.
+     * @param clientIp
+     * @param app
+     * @param url
+     * @return
+     * CmdResult: null if failed to execute command
+     */
+    public CmdResult register(String clientIp, String app, String url) {
+        return OGCmdExecuter.await(registerAsync(clientIp, app, url), "register " + getKey(clientIp, app));
+    }
+
+    /**
+     * @Title: registerAsync
+     * @Description:
+     * Save receive address to dcc asynchronously, and cache it if succeeded.
+     * The write is coalesced with other writes arriving within a short window.
+     * @param clientIp
+     * @param app
+     * @param url
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> registerAsync(String clientIp, String app, String url) {
+        return writeCoalescer.submit(clientIp, app, url);
+    }
+
+    /**
+     * @Title: unregister
+     * @Description:
+     * Delete receive address from dcc, and remove it from cache if succeeded.
+     * @param clientIp
+     * @param app
+     * @return
+     * CmdResult: null if failed to execute command
+     */
+    public CmdResult unregister(String clientIp, String app) {
+        return OGCmdExecuter.await(unregisterAsync(clientIp, app), "unregister " + getKey(clientIp, app));
+    }
+
+    /**
+     * @Title: unregisterAsync
+     * @Description:
+     * Delete receive address from dcc asynchronously, and remove it from cache if succeeded.
+     * The write is coalesced with other writes arriving within a short window.
+     * @param clientIp
+     * @param app
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    public CompletableFuture<CmdResult> unregisterAsync(String clientIp, String app) {
+        return writeCoalescer.submit(clientIp, app, null);
+    }
+
+    /**
+     * @Title: isUnchanged
+     * @Description:
+     * Check whether writing url for clientIp and app would not change receive addresses in dcc.
+     * Only a put of the cached url is known to be unchanged. Deletes are always written, as keys
+     * registered through other nodes since the last reconcile are missing in cache.
+     * @param clientIp
+     * @param app
+     * @param url: null means delete
+     * @return
+     * boolean
+     */
+    boolean isUnchanged(String clientIp, String app, String url) {
+        if (!loaded || url == null) {
+            return false;
+        }
+        return url.equals(getRecvAddr(clientIp, app));
+    }
+
+    /**
+     * @Title: writeThroughAsync
+     * @Description:
+     * Write receive address to dcc, and update cache if succeeded.
+     * @param clientIp
+     * @param app
+     * @param url: null means delete
+     * @return
+     * CompletableFuture<CmdResult>
+     */
+    CompletableFuture<CmdResult> writeThroughAsync(String clientIp, String app, String url) {
+        String key = getKey(clientIp, app);
+        CompletableFuture<CmdResult> future = url == null
+                ? ogCmdExecuter.deleteRecvAddrAsync(clientIp, app)
+                : ogCmdExecuter.saveRecvAddrAsync(clientIp, app, url);
+        return future.thenApply(cmdResult -> {
+            if (cmdResult == null || cmdResult.statusCode != 0) {
+                return cmdResult;
+            }
+            String previous = null;
+            synchronized (this) {
+                modCount.incrementAndGet();
+                if (isPrefixDelete(app, url)) {
+                    // dcc deleted every key starting with clientIp
+                    recvAddrs.keySet().removeIf(cachedKey -> cachedKey.startsWith(clientIp));
+                } else {
+                    previous = url == null ? recvAddrs.remove(key) : recvAddrs.put(key, url);
+                }
+            }
+            if (url != null) {
+                logger.info("Registered receive address {} for {}.", url, key);
+            } else if (previous != null || isPrefixDelete(app, url)) {
+                logger.info("Unregistered receive address for {}.", key);
+            }
+            return cmdResult;
+        });
+    }
+
+    /**
+     * @Title: queryRecvAddrs
+     * @Description:
+     * Query all receive addresses in dcc.
+     * @return
+     * Map<String, String>: key to url, null if failed
+     */
+    Map<String, String> queryRecvAddrs() {
+        return ogCmdExecuter.getRecvAddrList();
+    }
+
+    /**
+     * @Title: reconcile
+     * @Description:
+     * Replace cached receive addresses with those in dcc.
+     * @return
+     * boolean: false if failed to query dcc or cache was modified meanwhile
+     */
+    public boolean reconcile() {
+        long expectedModCount = modCount.get();
+        Map<String, String> latest = queryRecvAddrs();
+        if (latest == null) {
+            logger.error("Failed to get receive address list from dcc, keep cached ones.");
+            return false;
+        }
+        synchronized (this) {
+            if (modCount.get() != expectedModCount) {
+                logger.debug("Receive addresses modified during reconcile, retry next time.");
+                return false;
+            }
+            if (!latest.equals(recvAddrs)) {
+                logger.info("Receive addresses changed in dcc, cached: {}, latest: {}.", recvAddrs, latest);
+                recvAddrs.keySet().retainAll(latest.keySet());
+                recvAddrs.putAll(latest);
+            }
+            loaded = true;
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            // keep the scheduled task alive
+            logger.error("Error when reconcile receive addresses.\nDetail:", e);
+        }
+        scheduleNext();
+    }
+
+    private void scheduleNext() {
+        long delay = RECONCILE_INTERVAL;
+        if (!loaded) {
+            delay = Math.min(loadRetryDelay, RECONCILE_INTERVAL);
+            loadRetryDelay = Math.min(loadRetryDelay * 2, RECONCILE_INTERVAL);
+            logger.warn("Receive addresses are not loaded yet, retry in {}ms.", delay);
+        }
+        scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @Title: start
+     * @Description:
+     * Load receive addresses from dcc and reconcile them periodically.
+     * Loading is retried with short back-off if it fails.
+     * void
+     */
+    public void start() {
+        logger.info("Starting thread {}, reconcileInterval={}ms.", THREAD_NAME, RECONCILE_INTERVAL);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            // load receive addresses before monitoring role change
+            run();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+/**
+ * @Title: RecvAddrResult
+ * @author: agent
+ * @Description:
+ * Result of one entry of batch receive address request.
+ * status: http status code of the entry.
+ * Created on: 2026/10/17
+ */
+class RecvAddrResult {
+    String app;
+    String op;
+    int status;
+    String msg;
+    public RecvAddrResult(String app, String op, int status, String msg) {
+        this.app = app;
+        this.op = op;
+        this.status = status;
+        this.msg = msg;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: RecvAddrWriteCoalescer
+ * @author: agent
+ * @Description:
+ * Coalesce receive address writes arriving within a short window into one batch.
+ * cm_ctl ddb can only put or delete one key per process, so a batch does not reduce the
+ * writes to one, instead:
+ * (1) Writes of the same key are deduplicated, the last one wins and its result is
+ *     returned to all callers of that key. A delete without app deletes all keys of the
+ *     client ip, so it supersedes their earlier writes in the same way.
+ * (2) Puts of the cached url are not sent to dcc, unless the batch has a delete without app
+ *     of the same client ip, which deletes the cached url before the put is written.
+ * (3) Deletes without app are sent to dcc first, then remaining writes with bounded concurrency,
+ *     so that writes submitted after such a delete are not deleted by it.
+ * Batches are written one after another, so writes of the same key are never reordered.
+ * Writes submitted while the next batch already holds max pending writes are rejected
+ * with RejectedExecutionException, instead of queueing without bound.
+ * Window (ms), write concurrency and max pending writes can be set by system properties
+ * cmrestapi.recvAddr.batchWindow, cmrestapi.recvAddr.writeConcurrency and cmrestapi.recvAddr.maxPendingWrites.
+ * Created on: 2026/10/17
+ */
+public class RecvAddrWriteCoalescer {
+    private static final long BATCH_WINDOW = Long.getLong("cmrestapi.recvAddr.batchWindow", 20L);
+    private static final int WRITE_CONCURRENCY = Integer.getInteger("cmrestapi.recvAddr.writeConcurrency", 4);
+    private static final int MAX_PENDING_WRITES = Integer.getInteger("cmrestapi.recvAddr.maxPendingWrites", 1024);
+    private static final String THREAD_NAME = "RecvAddrWriteCoalescer";
+    private final RecvAddrRegistry registry;
+    private final ScheduledExecutorService scheduler;
+    private Map<String, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    private int pendingCount = 0;
+    private boolean flushScheduled = false;
+    private boolean flushing = false;
+    private Logger logger = LoggerFactory.getLogger(RecvAddrWriteCoalescer.class);
+
+    public RecvAddrWriteCoalescer(RecvAddrRegistry registry) {
+        this.registry = registry;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @Title: PendingWrite
+     * @author: agent
+     * @Description: Latest write of one key and all callers waiting for it.
+     * Created on: 2026/10/17
+     */
+    private static class PendingWrite {
+        final String clientIp;
+        final String app;
+        String url;
+        final List<CompletableFuture<CmdResult>> waiters = new ArrayList<>();
+
+        PendingWrite(String clientIp, String app) {
+            this.clientIp = clientIp;
+            this.app = app;
+        }
+
+        void complete(CmdResult cmdResult, Throwable exp) {
+            for (CompletableFuture<CmdResult> waiter : waiters) {
+                if (exp != null) {
+                    waiter.completeExceptionally(exp);
+                } else {
+                    waiter.complete(cmdResult);
+                }
+            }
+        }
+    }
+
+    /**
+     * @Title: submit
+     * @Description:
+     * Submit receive address write to next batch.
+     * @param clientIp
+     * @param app
+     * @param url: null means delete
+     * @return
+     * CompletableFuture<CmdResult>: completed exceptionally with RejectedExecutionException
+     * if too many writes are pending
+     */
+    public synchronized CompletableFuture<CmdResult> submit(String clientIp, String app, String url) {
+        CompletableFuture<CmdResult> future = new CompletableFuture<>();
+        if (pendingCount >= MAX_PENDING_WRITES) {
+            logger.error("Too many receive address writes are pending, reject write of {}/{}.", clientIp, app);
+            future.completeExceptionally(new RejectedExecutionException("Too many receive address writes."));
+            return future;
+        }
+        pendingCount++;
+        String key = RecvAddrRegistry.getKey(clientIp, app);
+        boolean isPrefixDelete = RecvAddrRegistry.isPrefixDelete(app, url);
+        // a put without app submitted after a delete without app must not replace the delete
+        PendingWrite pendingWrite = pendingWrites.computeIfAbsent(isPrefixDelete ? key + "*" : key,
+                k -> new PendingWrite(clientIp, app));
+        pendingWrite.url = url;
+        pendingWrite.waiters.add(future);
+        if (isPrefixDelete) {
+            supersede(pendingWrite, key);
+        }
+        scheduleFlush(BATCH_WINDOW);
+        return future;
+    }
+
+    /**
+     * @Title: supersede
+     * @Description:
+     * Move waiters of pending writes whose keys would be deleted by prefix delete to it.
+     * @param prefixDelete
+     * @param prefix
+     * void
+     */
+    private void supersede(PendingWrite prefixDelete, String prefix) {
+        Iterator<Map.Entry<String, PendingWrite>> iterator = pendingWrites.entrySet().iterator();
+        while (iterator.hasNext()) {
+            PendingWrite pendingWrite = iterator.next().getValue();
+            if (pendingWrite != prefixDelete
+                    && RecvAddrRegistry.getKey(pendingWrite.clientIp, pendingWrite.app).startsWith(prefix)) {
+                prefixDelete.waiters.addAll(pendingWrite.waiters);
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized void scheduleFlush(long delay) {
+        if (!flushScheduled && !flushing) {
+            flushScheduled = true;
+            scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<String, PendingWrite> batch = null;
+        synchronized (this) {
+            flushScheduled = false;
+            batch = pendingWrites;
+            pendingWrites = new LinkedHashMap<>();
+            pendingCount = 0;
+            flushing = true;
+        }
+        Queue<PendingWrite> prefixDeletes = new ConcurrentLinkedQueue<>();
+        Queue<PendingWrite> writes = new ConcurrentLinkedQueue<>();
+        List<String> deletedPrefixes = new ArrayList<>();
+        for (PendingWrite pendingWrite : batch.values()) {
+            if (RecvAddrRegistry.isPrefixDelete(pendingWrite.app, pendingWrite.url)) {
+                deletedPrefixes.add(RecvAddrRegistry.getKey(pendingWrite.clientIp, pendingWrite.app));
+            }
+        }
+        int submitted = 0;
+        for (PendingWrite pendingWrite : batch.values()) {
+            submitted += pendingWrite.waiters.size();
+            if (!isDeletedByPrefix(pendingWrite, deletedPrefixes)
+                    && registry.isUnchanged(pendingWrite.clientIp, pendingWrite.app, pendingWrite.url)) {
+                pendingWrite.complete(new CmdResult(0, "Receive address not changed."), null);
+            } else if (RecvAddrRegistry.isPrefixDelete(pendingWrite.app, pendingWrite.url)) {
+                prefixDeletes.add(pendingWrite);
+            } else {
+                writes.add(pendingWrite);
+            }
+        }
+        logger.debug("Flushing receive address writes, submitted: {}, distinct: {}, to dcc: {}.",
+                submitted, batch.size(), prefixDeletes.size() + writes.size());
+        writeAll(prefixDeletes, () -> writeAll(writes, this::finishFlush));
+    }
+
+    private static boolean isDeletedByPrefix(PendingWrite pendingWrite, List<String> deletedPrefixes) {
+        String key = RecvAddrRegistry.getKey(pendingWrite.clientIp, pendingWrite.app);
+        for (String prefix : deletedPrefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @Title: writeAll
+     * @Description:
+     * Send writes to dcc with bounded concurrency, then run onFinished.
+     * @param writes
+     * @param onFinished
+     * void
+     */
+    private void writeAll(Queue<PendingWrite> writes, Runnable onFinished) {
+        if (writes.isEmpty()) {
+            onFinished.run();
+            return;
+        }
+        AtomicInteger remaining = new AtomicInteger(writes.size());
+        for (int i = 0; i < Math.min(WRITE_CONCURRENCY, writes.size()); i++) {
+            writeNext(writes, remaining, onFinished);
+        }
+    }
+
+    private void writeNext(Queue<PendingWrite> writes, AtomicInteger remaining, Runnable onFinished) {
+        PendingWrite pendingWrite = writes.poll();
+        if (pendingWrite == null) {
+            return;
+        }
+        CompletableFuture<CmdResult> future = null;
+        try {
+            future = registry.writeThroughAsync(pendingWrite.clientIp, pendingWrite.app, pendingWrite.url);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        // continue on scheduler thread, so that a synchronously failed write does not recurse
+        future.whenCompleteAsync((cmdResult, exp) -> {
+            pendingWrite.complete(cmdResult, exp);
+            if (remaining.decrementAndGet() == 0) {
+                onFinished.run();
+            } else {
+                writeNext(writes, remaining, onFinished);
+            }
+        }, scheduler);
+    }
+
+    private void finishFlush() {
+        synchronized (this) {
+            flushing = false;
+            if (!pendingWrites.isEmpty()) {
+                // writes submitted during this flush have waited long enough
+                scheduleFlush(0);
+            }
+        }
+    }
+}
@@ -14,11 +14,28 @@
  */
 package org.opengauss.cmrestapi;
 
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import org.opengauss.cmrestapi.InfoPushDispatcher.PushResult;
 import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,20 +45,40 @@ import org.slf4j.LoggerFactory;
  * @author: xuemengen
  * @Description:
  * Monitor of data instance role change to primary.
+ * By default, gaussdb.state and postmaster.pid in data path are watched, and role is
+ * confirmed by gs_ctl query when they change. As watch events may be missed, modification
+ * times of these files are also compared every second, which costs no process. Without changes,
+ * role is still checked by gs_ctl query, every second at first, then at intervals doubling up to
+ * cmrestapi.monitor.maxPollInterval (ms, default 10000), as promotion may not touch these files.
+ * If system property cmrestapi.monitor.mode is "poll", role is checked every second.
  * Created on: 2022/09/08
  */
 public class Role2PrimaryMonitor implements Runnable {
+    private static final String MONITOR_MODE = System.getProperty("cmrestapi.monitor.mode", "watch");
+    private static final long MIN_POLL_INTERVAL = 1000L;
+    private static final long MAX_POLL_INTERVAL = Math.max(MIN_POLL_INTERVAL,
+            Long.getLong("cmrestapi.monitor.maxPollInterval", 10000L));
+    private static final String TRIGGER_STARTUP = "startup";
+    private static final String TRIGGER_WATCH = "watch";
+    private static final String TRIGGER_POLL = "poll";
+    private static final String TRIGGER_STAT = "stat";
+    private static final Set<String> WATCHED_FILES = new HashSet<>(Arrays.asList("gaussdb.state", "postmaster.pid"));
     private Thread thread;
     private final String THREAD_NAME;
     private OGCmdExecuter ogCmdExecuter;
+    private CmQueryParser cmQueryParser;
+    private InfoPushDispatcher infoPushDispatcher;
     private String currentLocalRole;
     private String masterIpPort;
+    private String localNodeIp;
     private Logger logger = LoggerFactory.getLogger(Role2PrimaryMonitor.class);
     
     public Role2PrimaryMonitor() {
         THREAD_NAME = "RoleChangeToPrimaryMonitor";
         currentLocalRole = "";
         ogCmdExecuter = new OGCmdExecuter(CMRestAPI.envFile);
+        cmQueryParser = new CmQueryParser();
+        infoPushDispatcher = new InfoPushDispatcher();
         masterIpPort = CMRestAPI.hostIp + ":" + CMRestAPI.port;
     }
 
@@ -54,17 +91,14 @@ public class Role2PrimaryMonitor implements Runnable {
      */
     private boolean roleChanged2Primary() {
         CmdResult cmdResult = ogCmdExecuter.gsctlQuery();
-        if (cmdResult.statusCode != 0) {
+        if (cmdResult == null || cmdResult.statusCode != 0) {
             logger.error("Exec gs_ctl query cmd failed!");
             return false;
         }
-        String localRole = null;
-        Pattern pattern = Pattern.compile(".+local_role.+: (.+)\\s+");
-        Matcher matcher = pattern.matcher(cmdResult.resultString);
-        if (matcher.find()) {
-            localRole = matcher.group(1);
-        }
-        if (!currentLocalRole.equals(localRole)) {
+        long parseStart = System.nanoTime();
+        String localRole = cmQueryParser.parseLocalRole(cmdResult.resultString);
+        Metrics.PARSE_DURATION.labels("local_role").observeSince(parseStart);
+        if (!Objects.equals(currentLocalRole, localRole)) {
             // update currentLocalRole
             currentLocalRole = localRole;
             if ("Primary".equals(localRole)) {
@@ -78,6 +112,195 @@ public class Role2PrimaryMonitor implements Runnable {
         return false;
     }
     
+    /**
+     * @Title: getLocalNodeIp
+     * @Description:
+     * Get node_ip of current node from cluster status, the same ip which cluster status
+     * refresh publishes primary with. The ip is kept once got, as it never changes.
+     * @return
+     * String: null if there is no cluster status yet
+     */
+    private String getLocalNodeIp() {
+        if (localNodeIp == null && CMRestAPI.clusterStatusRefresher != null) {
+            ClusterStatusRefresher.Snapshot snapshot = CMRestAPI.clusterStatusRefresher.getSnapshot();
+            NodeStatus nodeStatus = snapshot == null ? null : snapshot.getNodeStatus(CMRestAPI.nodeId);
+            if (nodeStatus != null) {
+                localNodeIp = nodeStatus.nodeIp;
+            }
+        }
+        return localNodeIp;
+    }
+
+    /**
+     * @Title: checkRole
+     * @Description:
+     * Check role of current node, and push master info to all receive addresses
+     * if role changed to primary. Every role change is recorded as a failover trace.
+     * @param trigger: what triggered this check, startup, watch, stat or poll
+     * void
+     */
+    private void checkRole(String trigger) {
+        long triggeredAt = System.nanoTime();
+        String previousRole = currentLocalRole;
+        boolean isPromoted = roleChanged2Primary();
+        if (Objects.equals(previousRole, currentLocalRole)) {
+            return;
+        }
+        FailoverTrace trace = new FailoverTrace(trigger, previousRole, currentLocalRole, triggeredAt);
+        trace.mark("detected");
+        if (isPromoted) {
+            long start = System.nanoTime();
+            Metrics.FAILOVER_TOTAL.labels().inc();
+            // event subscribers are notified at once, cluster status refresh confirms it later,
+            // or publishes it if node_ip is not known yet
+            String nodeIp = getLocalNodeIp();
+            if (nodeIp != null) {
+                CMRestAPI.clusterEventBus.publishPrimary(nodeIp);
+            }
+            trace.mark("eventPublished");
+            Collection<String> urls = getRecvAddrUrls();
+            trace.mark("registryLookedUp");
+            trace.receivers = urls.size();
+            List<PushResult> pushResults = infoPushDispatcher.dispatch(masterIpPort, CMRestAPI.peerIpPorts, urls);
+            trace.mark("dispatchFinished");
+            trace.addPushes(pushResults);
+            observeNotification(start, pushResults);
+        }
+        CMRestAPI.failoverTraceBuffer.add(trace);
+    }
+
+    /**
+     * @Title: getRecvAddrUrls
+     * @Description:
+     * Get urls of receive addresses from cache, or from dcc if cache is not loaded yet.
+     * @return
+     * Collection<String>: empty if failed to query dcc
+     */
+    private Collection<String> getRecvAddrUrls() {
+        RecvAddrRegistry registry = CMRestAPI.recvAddrRegistry;
+        if (registry != null && registry.isLoaded()) {
+            return registry.getUrls();
+        }
+        logger.warn("Receive addresses are not loaded yet, get them from dcc.");
+        Map<String, String> recvAddrs = ogCmdExecuter.getRecvAddrList();
+        if (recvAddrs == null) {
+            logger.error("Failed to get receive address list from dcc.");
+            return Collections.emptyList();
+        }
+        return recvAddrs.values();
+    }
+
+    /**
+     * @Title: observeNotification
+     * @Description:
+     * Record time from seeing role change to the last receiver acknowledging if all pushes
+     * are acknowledged, else count pushes not acknowledged.
+     * @param start: time of seeing role change, by System.nanoTime()
+     * @param pushResults
+     * void
+     */
+    private void observeNotification(long start, List<PushResult> pushResults) {
+        long lastAcked = start;
+        int unacked = 0;
+        synchronized (pushResults) {
+            for (PushResult pushResult : pushResults) {
+                if (pushResult.isSuccess()) {
+                    lastAcked = Math.max(lastAcked, pushResult.finishedAt);
+                } else {
+                    ++unacked;
+                }
+            }
+        }
+        if (unacked > 0) {
+            Metrics.FAILOVER_UNACKED_PUSHES.labels().add(unacked);
+        } else if (!pushResults.isEmpty()) {
+            Metrics.FAILOVER_NOTIFY_DURATION.labels().observe(lastAcked - start);
+        }
+    }
+
+    /**
+     * @Title: watchDataPath
+     * @Description:
+     * Check role when gaussdb.state or postmaster.pid in data path changes, found by watch events
+     * or by comparing modification times every second, or when poll interval elapses without changes.
+     * Checks are scheduled by deadlines, so that events of other files never delay them.
+     * void
+     */
+    private void watchDataPath() throws IOException, InterruptedException {
+        Path dataPath = Paths.get(CMRestAPI.dataPath);
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            dataPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            logger.info("Watching {} in {}, maxPollInterval={}ms.", WATCHED_FILES, dataPath, MAX_POLL_INTERVAL);
+            long pollInterval = MIN_POLL_INTERVAL;
+            Map<String, FileTime> modifiedTimes = getModifiedTimes(dataPath);
+            checkRole(TRIGGER_STARTUP);
+            long nextStat = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MIN_POLL_INTERVAL);
+            long nextPoll = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pollInterval);
+            for (;;) {
+                long wait = Math.min(nextStat, nextPoll) - System.nanoTime();
+                WatchKey watchKey = watchService.poll(Math.max(0L, wait), TimeUnit.NANOSECONDS);
+                String trigger = null;
+                if (watchKey != null) {
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                                || WATCHED_FILES.contains(String.valueOf(event.context()))) {
+                            trigger = TRIGGER_WATCH;
+                        }
+                    }
+                    if (!watchKey.reset()) {
+                        throw new IOException(dataPath + " is no longer accessible");
+                    }
+                }
+                long now = System.nanoTime();
+                if (now - nextStat >= 0) {
+                    nextStat = now + TimeUnit.MILLISECONDS.toNanos(MIN_POLL_INTERVAL);
+                    Map<String, FileTime> latest = getModifiedTimes(dataPath);
+                    if (!latest.equals(modifiedTimes)) {
+                        modifiedTimes = latest;
+                        // watch event was missed or has not arrived yet
+                        trigger = trigger == null ? TRIGGER_STAT : trigger;
+                    }
+                } else if (trigger != null) {
+                    modifiedTimes = getModifiedTimes(dataPath);
+                }
+                if (trigger != null) {
+                    // role may be confirmed a little later than the change, check it frequently for a while
+                    pollInterval = MIN_POLL_INTERVAL;
+                } else if (now - nextPoll >= 0) {
+                    pollInterval = Math.min(pollInterval * 2, MAX_POLL_INTERVAL);
+                    trigger = TRIGGER_POLL;
+                } else {
+                    continue;
+                }
+                checkRole(trigger);
+                nextPoll = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pollInterval);
+            }
+        }
+    }
+
+    /**
+     * @Title: getModifiedTimes
+     * @Description:
+     * Get modification times of watched files in data path.
+     * @param dataPath
+     * @return
+     * Map<String, FileTime>: file name to modification time, null if file does not exist
+     */
+    private static Map<String, FileTime> getModifiedTimes(Path dataPath) {
+        Map<String, FileTime> modifiedTimes = new HashMap<>();
+        for (String file : WATCHED_FILES) {
+            FileTime modifiedTime = null;
+            try {
+                modifiedTime = Files.getLastModifiedTime(dataPath.resolve(file));
+            } catch (IOException e) {
+                // not created yet or just deleted
+            }
+            modifiedTimes.put(file, modifiedTime);
+        }
+        return modifiedTimes;
+    }
+
     /**
      * @Title: run
      * @Description:
@@ -88,23 +311,19 @@ public class Role2PrimaryMonitor implements Runnable {
     @Override
     public void run() {
         try {
-            for (;;) {
-                Thread.sleep(1000);
-                boolean hasRoleChanged2Priamry = roleChanged2Primary();
-                if (!hasRoleChanged2Priamry) {
-                    continue;
-                }
-                Map<String, String> ipPortRecvAddrs = ogCmdExecuter.getRecvAddrList();
-                Collection<String> recvAddrList = ipPortRecvAddrs.values();
-                int i = 0;
-                for (String url : recvAddrList) {
-                    ++i;
-                    // start a new PushInfoThread to send masterIpPort to every recvAddr
-                    new InfoPushThread(i, url, masterIpPort).start();
+            if (!"poll".equals(MONITOR_MODE)) {
+                try {
+                    watchDataPath();
+                } catch (IOException e) {
+                    logger.error("Failed to watch data path, check role every second instead.\nDetail:", e);
                 }
             }
+            for (;;) {
+                Thread.sleep(MIN_POLL_INTERVAL);
+                checkRole(TRIGGER_POLL);
+            }
         } catch (InterruptedException e) {
-            logger.error("{}", e);
+            logger.error("Thread {} is interrupted.\nDetail:", THREAD_NAME, e);
         }
     }
     
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @Title: ShellWorkerPool
+ * @author: agent
+ * @Description:
+ * Pool of long-lived shells which have sourced env file already.
+ * Commands are written to stdin of an idle shell, and the output is read until
+ * the end marker carrying exit code of the command. A shell which timed out or
+ * crashed is killed together with its descendants and replaced by a new one.
+ * Pool size and command timeout (ms) can be set by system properties
+ * cmrestapi.exec.poolSize and cmrestapi.exec.poolTimeout.
+ * Created on: 2026/10/17
+ */
+public class ShellWorkerPool {
+    private static final int POOL_SIZE = Integer.getInteger("cmrestapi.exec.poolSize", 2);
+    private static final long TIMEOUT = Long.getLong("cmrestapi.exec.poolTimeout", 10000L);
+    private static final int TIMEOUT_STATUS_CODE = 124;
+    private final String envFile;
+    private final BlockingQueue<ShellWorker> idleWorkers;
+    private final ScheduledExecutorService watchdog;
+    private static Logger logger = LoggerFactory.getLogger(ShellWorkerPool.class);
+
+    public ShellWorkerPool(String envFile) {
+        this.envFile = envFile;
+        this.idleWorkers = new ArrayBlockingQueue<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; ++i) {
+            // workers are started lazily
+            idleWorkers.add(new ShellWorker(i));
+        }
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ShellWorkerWatchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @Title: ShellWorker
+     * @author: agent
+     * @Description: A long-lived shell process.
+     * Created on: 2026/10/17
+     */
+    private class ShellWorker {
+        private final int workerNo;
+        private final String endMarker;
+        private Process process;
+        private OutputStream stdin;
+        private BufferedReader stdout;
+        private volatile boolean isKilled;
+
+        ShellWorker(int workerNo) {
+            this.workerNo = workerNo;
+            this.endMarker = "__CMRESTAPI_END_" + UUID.randomUUID().toString().replace("-", "") + "__";
+        }
+
+        private void ensureStarted() throws IOException {
+            if (process != null && process.isAlive()) {
+                return;
+            }
+            logger.info("Starting shell worker {}.", workerNo);
+            ProcessBuilder processBuilder = new ProcessBuilder("/bin/sh");
+            processBuilder.redirectError(ProcessBuilder.Redirect.to(new File("/dev/null")));
+            process = processBuilder.start();
+            Metrics.PROCESS_STARTS.labels().inc();
+            stdin = process.getOutputStream();
+            stdout = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            isKilled = false;
+            write("source " + envFile + " >/dev/null 2>&1\n");
+        }
+
+        private void write(String text) throws IOException {
+            stdin.write(text.getBytes(StandardCharsets.UTF_8));
+            stdin.flush();
+        }
+
+        /**
+         * @Title: execute
+         * @Description:
+         * Execute command in this shell. The end marker is printed right after output
+         * of the command, so it is recognized even if the output has no trailing newline.
+         * @param command
+         * @return
+         * CmdResult: null if the shell crashed
+         */
+        CmdResult execute(String command) throws IOException {
+            ensureStarted();
+            write("{ " + command + "\n} </dev/null; printf '%s %d\\n' " + endMarker + " $?\n");
+            ScheduledFuture<?> killer = watchdog.schedule(this::kill, TIMEOUT, TimeUnit.MILLISECONDS);
+            StringBuilder sb = new StringBuilder();
+            try {
+                String line;
+                while ((line = stdout.readLine()) != null) {
+                    int index = line.indexOf(endMarker);
+                    if (index < 0) {
+                        sb.append(line).append(System.lineSeparator());
+                        continue;
+                    }
+                    if (index > 0) {
+                        sb.append(line, 0, index).append(System.lineSeparator());
+                    }
+                    int statusCode = Integer.parseInt(line.substring(index + endMarker.length()).trim());
+                    return new CmdResult(statusCode, sb.toString());
+                }
+            } catch (IOException e) {
+                if (!isKilled) {
+                    throw e;
+                }
+            } finally {
+                killer.cancel(false);
+            }
+            destroy();
+            if (isKilled) {
+                logger.error("Command timeout in shell worker {}: {}.", workerNo, command);
+                return new CmdResult(TIMEOUT_STATUS_CODE, sb.toString());
+            }
+            logger.error("Shell worker {} exited when executing command: {}.", workerNo, command);
+            return null;
+        }
+
+        private void kill() {
+            isKilled = true;
+            destroy();
+        }
+
+        private void destroy() {
+            if (process != null) {
+                // the running command and its children would outlive the shell otherwise
+                CmdRunner.killProcessTree(process);
+            }
+        }
+    }
+
+    /**
+     * @Title: execute
+     * @Description:
+     * Execute command by an idle shell worker, wait if all workers are busy.
+     * @param command
+     * @return
+     * CmdResult: null if failed to execute command
+     */
+    public CmdResult execute(String command) {
+        logger.debug("Excuting command in shell worker: {}.", command);
+        ShellWorker worker;
+        try {
+            worker = idleWorkers.take();
+        } catch (InterruptedException e) {
+            logger.error("Interrupted when waiting for idle shell worker.");
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            CmdResult cmdResult = worker.execute(command);
+            if (cmdResult != null) {
+                logger.debug("Result:\nstatusCode: {}\nresultString: {}", cmdResult.statusCode, cmdResult.resultString);
+            }
+            return cmdResult;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Exception happend when excute command in shell worker: {}.\nDetail:", command, e);
+            worker.destroy();
+            return null;
+        } finally {
+            idleWorkers.add(worker);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @Title: ClusterEventBusTest
+ * @author: agent
+ * @Description: Replay of missed events to reconnecting subscribers.
+ * Created on: 2026/10/18
+ */
+class ClusterEventBusTest {
+    private static final Pattern FRAME = Pattern.compile("id: (\\S+)\nevent: (\\S+)\n");
+    private static final byte[] CLUSTER_STATUS = "{\"clusterState\":\"Normal\"}".getBytes(StandardCharsets.UTF_8);
+    private static final int STALLED = 16;
+    private final CmQueryParser parser = new CmQueryParser();
+    private ClusterEventBus bus;
+
+    private static class RecordingSink implements EventSink {
+        final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(byte[] frame) {
+            frames.add(new String(frame, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * Get "id event" of the next n events, skipping retry and heartbeat frames.
+         */
+        List<String> take(int n) throws InterruptedException {
+            List<String> events = new ArrayList<>();
+            while (events.size() < n) {
+                String frame = frames.poll(5, TimeUnit.SECONDS);
+                assertTrue(frame != null, "expected " + n + " events, got " + events);
+                Matcher matcher = FRAME.matcher(frame);
+                if (matcher.find()) {
+                    events.add(matcher.group(1) + " " + matcher.group(2));
+                }
+            }
+            return events;
+        }
+    }
+
+    @BeforeEach
+    void startBus() {
+        bus = new ClusterEventBus();
+        bus.start();
+    }
+
+    private List<String> subscribe(String lastEventId, int n) throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        bus.subscribe(sink, lastEventId, CLUSTER_STATUS);
+        return sink.take(n);
+    }
+
+    private ClusterStatus parse(String name, String from, String to) throws IOException {
+        String output = CmQueryParserTest.load(name);
+        assertTrue(output.contains(from), from);
+        return parser.parseClusterStatus(output.replace(from, to));
+    }
+
+    private static String idOf(String event) {
+        return event.substring(0, event.indexOf(' '));
+    }
+
+    @Test
+    void newSubscriberGetsClusterStatus() throws InterruptedException {
+        bus.publishPrimary("192.168.0.1");
+        String first = subscribe(null, 1).get(0);
+        assertTrue(first.endsWith(" ClusterStatus"), first);
+        assertTrue(idOf(first).endsWith("-1"), first);
+    }
+
+    @Test
+    void replayMissedEvents() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        bus.subscribe(sink, null, CLUSTER_STATUS);
+        bus.publishPrimary("192.168.0.1");
+        bus.publishPrimary("192.168.0.2");
+        bus.publishPrimary("192.168.0.3");
+        List<String> received = sink.take(4);
+        List<String> replayed = subscribe(idOf(received.get(1)), 2);
+        assertEquals(received.subList(2, 4), replayed);
+    }
+
+    @Test
+    void upToDateSubscriberGetsNothingAgain() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        bus.subscribe(sink, null, CLUSTER_STATUS);
+        bus.publishPrimary("192.168.0.1");
+        String lastId = idOf(sink.take(2).get(1));
+        RecordingSink reconnected = new RecordingSink();
+        bus.subscribe(reconnected, lastId, CLUSTER_STATUS);
+        bus.publishPrimary("192.168.0.2");
+        assertEquals("PrimaryChanged", reconnected.take(1).get(0).split(" ")[1]);
+    }
+
+    @Test
+    void publishChangesWithoutResources() throws IOException, InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        bus.subscribe(sink, null, null);
+        String node2Down = "instance_state            : Unknown\nHA_state                  : Unknown";
+        String node2Up = "instance_state            : Standby\nHA_state                  : Normal";
+        ClusterStatus previous = parse("query-without-resources.out", node2Down, node2Down);
+        ClusterStatus latest = parse("query-without-resources.out", node2Down, node2Up);
+        bus.publishChanges(null, previous);
+        bus.publishChanges(previous, latest);
+        List<String> events = sink.take(2);
+        assertTrue(events.get(0).endsWith(" StandbysChanged"), events.toString());
+        assertTrue(events.get(1).endsWith(" NodeStateChanged"), events.toString());
+        // resources showing up later are new
+        bus.publishChanges(latest, parse("query-with-resources.out", "OffLine", "OffLine"));
+        events = sink.take(3);
+        assertEquals(2, events.stream().filter(event -> event.endsWith(" ResourceStateChanged")).count(),
+                events.toString());
+    }
+
+    @Test
+    void publishResourceChanges() throws IOException, InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        bus.subscribe(sink, null, null);
+        ClusterStatus previous = parse("query-with-resources.out", "OffLine", "OffLine");
+        bus.publishChanges(null, previous);
+        bus.publishChanges(previous, parse("query-with-resources.out", "OffLine", "OnLine"));
+        String event = sink.take(1).get(0);
+        assertTrue(event.endsWith(" ResourceStateChanged"), event);
+        assertTrue(sink.frames.isEmpty(), sink.frames.toString());
+    }
+
+    @Test
+    void evictStalledSubscribers() throws InterruptedException {
+        ClusterEventBus stallingBus = new ClusterEventBus(200L);
+        stallingBus.start();
+        // more stalled subscribers than dispatcher threads, each blocks in write until interrupted
+        CountDownLatch interrupted = new CountDownLatch(STALLED);
+        for (int i = 0; i < STALLED; i++) {
+            stallingBus.subscribe(new EventSink() {
+                @Override
+                public void send(byte[] frame) throws IOException {
+                    try {
+                        new CountDownLatch(1).await();
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw new InterruptedIOException("write interrupted");
+                    }
+                }
+
+                @Override
+                public void close() {
+                }
+            }, null, null);
+        }
+        RecordingSink sink = new RecordingSink();
+        stallingBus.subscribe(sink, null, null);
+        stallingBus.publishPrimary("192.168.0.1");
+        stallingBus.publishPrimary("192.168.0.2");
+        List<String> events = sink.take(2);
+        assertTrue(events.get(1).endsWith(" PrimaryChanged"), events.toString());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        // stalled subscribers are gone, the next event is delivered at once
+        stallingBus.publishPrimary("192.168.0.3");
+        long start = System.nanoTime();
+        sink.take(1);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200L));
+    }
+
+    @Test
+    void unknownIdGetsClusterStatus() throws InterruptedException {
+        bus.publishPrimary("192.168.0.1");
+        String id = idOf(subscribe(null, 1).get(0));
+        String epoch = id.substring(0, id.lastIndexOf('-'));
+        // ahead of this run, e.g. got from another node or a run with a later clock
+        assertTrue(subscribe(epoch + "-100", 1).get(0).endsWith(" ClusterStatus"));
+        // of another run
+        assertTrue(subscribe("0-1", 1).get(0).endsWith(" ClusterStatus"));
+        // of the old format
+        assertTrue(subscribe(Long.toString(System.currentTimeMillis()), 1).get(0).endsWith(" ClusterStatus"));
+        assertTrue(subscribe(epoch + "-x", 1).get(0).endsWith(" ClusterStatus"));
+    }
+}
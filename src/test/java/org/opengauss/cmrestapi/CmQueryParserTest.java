@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @Title: CmQueryParserTest
+ * @author: agent
+ * @Description:
+ * Parse recorded cm_ctl query -v and gs_ctl query outputs in the layouts
+ * accepted by the regular expressions CmQueryParser replaced.
+ * Created on: 2026/10/18
+ */
+class CmQueryParserTest {
+    private final CmQueryParser parser = new CmQueryParser();
+
+    @Test
+    void parseWithResources() throws IOException {
+        assertWithResources(parser.parseClusterStatus(load("query-with-resources.out")));
+    }
+
+    @Test
+    void parseWithoutResources() throws IOException {
+        ClusterStatus clusterStatus = parser.parseClusterStatus(load("query-without-resources.out"));
+        assertEquals("Degraded", clusterStatus.clusterState);
+        assertNull(clusterStatus.defResStatus);
+        assertEquals(3, clusterStatus.nodesStatus.size());
+        assertNode(clusterStatus.nodesStatus.get(0), 1, "Primary", "Primary", "Normal");
+        assertNode(clusterStatus.nodesStatus.get(1), 2, "Standby", "Unknown", "Unknown");
+        assertNode(clusterStatus.nodesStatus.get(2), 3, "Standby", "Standby", "Normal");
+    }
+
+    @Test
+    void parseLeadingSeparator() throws IOException {
+        ClusterStatus clusterStatus = parser.parseClusterStatus(load("query-leading-separator.out"));
+        assertEquals("Normal", clusterStatus.clusterState);
+        assertNull(clusterStatus.defResStatus);
+        assertEquals(2, clusterStatus.nodesStatus.size());
+        assertNode(clusterStatus.nodesStatus.get(0), 1, "Primary", "Primary", "Normal");
+        assertNode(clusterStatus.nodesStatus.get(1), 2, "Standby", "Standby", "Normal");
+    }
+
+    @Test
+    void parseLeadingSeparatorWithResources() throws IOException {
+        assertWithResources(parser.parseClusterStatus(load("query-leading-separator-with-resources.out")));
+    }
+
+    @Test
+    void parseCrlf() throws IOException {
+        assertWithResources(parser.parseClusterStatus(load("query-crlf.out")));
+    }
+
+    @Test
+    void parseNoTrailingSeparator() throws IOException {
+        ClusterStatus clusterStatus = parser.parseClusterStatus(load("query-no-trailing-separator.out"));
+        assertEquals("Normal", clusterStatus.clusterState);
+        assertEquals(2, clusterStatus.nodesStatus.size());
+        assertNode(clusterStatus.nodesStatus.get(0), 1, "Primary", "Standby", "Normal");
+        assertNode(clusterStatus.nodesStatus.get(1), 2, "Standby", "Primary", "Normal");
+    }
+
+    @Test
+    void parseEmpty() {
+        ClusterStatus clusterStatus = parser.parseClusterStatus("");
+        assertNull(clusterStatus.clusterState);
+        assertEquals(0, clusterStatus.nodesStatus.size());
+    }
+
+    @Test
+    void parseLocalRole() throws IOException {
+        assertEquals("Standby", parser.parseLocalRole(load("gs-ctl-query.out")));
+        assertNull(parser.parseLocalRole("no server running"));
+    }
+
+    private static void assertWithResources(ClusterStatus clusterStatus) {
+        assertEquals("Normal", clusterStatus.clusterState);
+        List<DefResStatus> defResStatus = clusterStatus.defResStatus;
+        assertEquals(2, defResStatus.size());
+        assertEquals(1, defResStatus.get(0).nodeId);
+        assertEquals("app1", defResStatus.get(0).resName);
+        assertEquals("OnLine", defResStatus.get(0).state);
+        assertEquals(2, defResStatus.get(1).nodeId);
+        assertEquals("OffLine", defResStatus.get(1).state);
+        assertEquals(2, clusterStatus.nodesStatus.size());
+        assertNode(clusterStatus.nodesStatus.get(0), 1, "Primary", "Primary", "Normal");
+        assertNode(clusterStatus.nodesStatus.get(1), 2, "Standby", "Standby", "Normal");
+    }
+
+    private static void assertNode(NodeStatus nodeStatus, int nodeId, String cmServerState, String dnRole,
+            String dnState) {
+        assertEquals(nodeId, nodeStatus.nodeId);
+        assertEquals("192.168.0." + nodeId, nodeStatus.nodeIp);
+        assertEquals(cmServerState, nodeStatus.cmServerState);
+        assertEquals(dnRole, nodeStatus.dnRole);
+        assertEquals(dnState, nodeStatus.dnState);
+    }
+
+    static String load(String name) throws IOException {
+        try (InputStream in = CmQueryParserTest.class.getResourceAsStream("/cm-query/" + name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                out.write(buffer, 0, length);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.opengauss.cmrestapi.CmdLimiter.CmdClass;
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+
+/**
+ * @Title: CmdLimiterTest
+ * @author: agent
+ * @Description: Queueing, rejection and AIMD limit of commands.
+ * Created on: 2026/10/18
+ */
+class CmdLimiterTest {
+    // query commands start at half of max limit 8
+    private static final int INITIAL_LIMIT = 4;
+    private static final int QUEUE_SIZE = 64;
+    private final CmdLimiter cmdLimiter = new CmdLimiter();
+    private final List<CompletableFuture<CmdResult>> executions = new ArrayList<>();
+
+    private CompletableFuture<CmdResult> submit() {
+        return cmdLimiter.execute(CmdClass.QUERY, () -> {
+            CompletableFuture<CmdResult> execution = new CompletableFuture<>();
+            executions.add(execution);
+            return execution;
+        });
+    }
+
+    @Test
+    void waitForFreeSlot() {
+        List<CompletableFuture<CmdResult>> futures = new ArrayList<>();
+        for (int i = 0; i <= INITIAL_LIMIT; i++) {
+            futures.add(submit());
+        }
+        assertEquals(INITIAL_LIMIT, executions.size());
+        executions.get(0).complete(new CmdResult(0, "ok"));
+        assertEquals("ok", futures.get(0).join().resultString);
+        assertEquals(INITIAL_LIMIT + 1, executions.size());
+    }
+
+    @Test
+    void rejectWhenQueueIsFull() {
+        for (int i = 0; i < INITIAL_LIMIT + QUEUE_SIZE; i++) {
+            assertFalse(submit().isDone());
+        }
+        CompletableFuture<CmdResult> rejected = submit();
+        assertTrue(rejected.isCompletedExceptionally());
+        assertTrue(CmdLimiter.isRejected(rejected.handle((cmdResult, exp) -> exp).join()));
+    }
+
+    @Test
+    void skipCancelledWhileWaiting() {
+        for (int i = 0; i < INITIAL_LIMIT; i++) {
+            submit();
+        }
+        CompletableFuture<CmdResult> cancelled = submit();
+        CompletableFuture<CmdResult> waiting = submit();
+        cancelled.cancel(true);
+        executions.get(0).complete(new CmdResult(0, "ok"));
+        assertEquals(INITIAL_LIMIT + 1, executions.size());
+        executions.get(INITIAL_LIMIT).complete(new CmdResult(0, "next"));
+        assertEquals("next", waiting.join().resultString);
+    }
+
+    @Test
+    void shrinkLimitOnTimeout() {
+        for (int i = 0; i < INITIAL_LIMIT * 2; i++) {
+            submit();
+        }
+        // limit drops from 4 to 3, so the slot freed by the timed out command is not reused
+        executions.get(0).complete(new CmdResult(124, "", "timeout"));
+        assertEquals(INITIAL_LIMIT, executions.size());
+        // grows back to 4 when a command finishes in time, 2 finished and 4 running
+        executions.get(1).complete(new CmdResult(0, "ok"));
+        assertEquals(INITIAL_LIMIT + 2, executions.size());
+    }
+}
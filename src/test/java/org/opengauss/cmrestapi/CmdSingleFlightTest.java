@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+
+/**
+ * @Title: CmdSingleFlightTest
+ * @author: agent
+ * @Description: Sharing and cancellation of coalesced command executions.
+ * Created on: 2026/10/18
+ */
+class CmdSingleFlightTest {
+    private final CmdSingleFlight singleFlight = new CmdSingleFlight();
+    private final AtomicInteger launches = new AtomicInteger();
+    private final CompletableFuture<CmdResult> execution = new CompletableFuture<>();
+
+    private CompletableFuture<CmdResult> execute() {
+        return singleFlight.execute("cm_ctl query -v", () -> {
+            launches.incrementAndGet();
+            return execution;
+        });
+    }
+
+    @Test
+    void shareExecution() throws Exception {
+        CompletableFuture<CmdResult> first = execute();
+        CompletableFuture<CmdResult> second = execute();
+        assertEquals(1, launches.get());
+        CmdResult cmdResult = new CmdResult(0, "ok");
+        execution.complete(cmdResult);
+        assertSame(cmdResult, first.get());
+        assertSame(cmdResult, second.get());
+    }
+
+    @Test
+    void keepExecutionWhileOthersWait() throws Exception {
+        CompletableFuture<CmdResult> first = execute();
+        CompletableFuture<CmdResult> second = execute();
+        first.cancel(true);
+        assertFalse(execution.isCancelled());
+        CmdResult cmdResult = new CmdResult(0, "ok");
+        execution.complete(cmdResult);
+        assertSame(cmdResult, second.get());
+    }
+
+    @Test
+    void cancelExecutionWithLastWaiter() {
+        CompletableFuture<CmdResult> first = execute();
+        CompletableFuture<CmdResult> second = execute();
+        first.cancel(true);
+        second.cancel(true);
+        assertTrue(execution.isCancelled());
+        // the cancelled execution is not shared any more
+        execute();
+        assertEquals(2, launches.get());
+    }
+
+    @Test
+    void executeAgainAfterCompletion() {
+        execute();
+        execution.complete(new CmdResult(0, "ok"));
+        execute();
+        assertEquals(2, launches.get());
+    }
+}
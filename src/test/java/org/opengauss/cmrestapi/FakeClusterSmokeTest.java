@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @Title: FakeClusterSmokeTest
+ * @author: agent
+ * @Description:
+ * Boots CMRestAPI in lite server mode against the fake openGauss toolchain, and drives it
+ * through receive address registration, conditional ClusterStatus requests and failover.
+ * cm_ctl query output starts with a separator line, as on some versions.
+ * Created on: 2026/10/18
+ */
+@EnabledOnOs(OS.LINUX)
+class FakeClusterSmokeTest {
+    private static final Path FIXTURE = Paths.get("src/test/resources/fake-opengauss");
+    private static final long TIMEOUT = 30000L;
+    private static final String RECV_ADDR_KEY = CMRestAPI.prefix + "127.0.0.1";
+
+    @TempDir
+    static Path home;
+    private static Process cmRestApi;
+    private static String baseUrl;
+
+    private static class Response {
+        final int status;
+        final String etag;
+        final String body;
+
+        Response(int status, String etag, String body) {
+            this.status = status;
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+
+    @BeforeAll
+    static void boot() throws IOException, InterruptedException {
+        fakectl("setup", home.toString(), "3", "1");
+        fakectl("set", home.toString(), "FAKE_LATENCY=0.01", "FAKE_QUERY_LEADING_SEPARATOR=1");
+        fakectl("start-db", home.toString());
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        baseUrl = "http://127.0.0.1:" + port + "/CMRestAPI";
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        cmRestApi = new ProcessBuilder(java, "-Xmx128m", "-Dcmrestapi.server.mode=lite", "-Dserver.port=" + port,
+                "-cp", System.getProperty("java.class.path"), CMRestAPI.class.getName(),
+                "-e", home.resolve("env").toString())
+                .redirectErrorStream(true)
+                .redirectOutput(home.resolve("cmrestapi.log").toFile())
+                .start();
+        awaitTrue("CMRestAPI is ready", () -> {
+            assertTrue(cmRestApi.isAlive(), "CMRestAPI exited, see " + home.resolve("cmrestapi.log"));
+            return get("/ClusterStatus", null).status == HttpURLConnection.HTTP_OK;
+        });
+    }
+
+    @AfterAll
+    static void shutdown() throws IOException, InterruptedException {
+        if (cmRestApi != null) {
+            cmRestApi.destroy();
+            cmRestApi.waitFor(10, TimeUnit.SECONDS);
+        }
+        fakectl("stop-db", home.toString());
+    }
+
+    @Test
+    void clusterStatusNotModified() {
+        Response response = get("/ClusterStatus", null);
+        assertEquals(HttpURLConnection.HTTP_OK, response.status);
+        assertTrue(response.body.contains("\"clusterState\":\"Normal\""), response.body);
+        assertTrue(response.body.contains("\"nodeIp\":\"10.0.0.3\""), response.body);
+        assertTrue(response.body.contains("\"resName\":\"app1\""), response.body);
+        assertNotNull(response.etag);
+        Response notModified = get("/ClusterStatus", response.etag);
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, notModified.status);
+        assertEquals(response.etag, notModified.etag);
+    }
+
+    @Test
+    void registerAndDeleteRecvAddr() throws IOException {
+        assertEquals(HttpURLConnection.HTTP_OK,
+                request("PUT", "/RecvAddr?app=app1&url=http://127.0.0.1:1/app1", null).status);
+        assertEquals(HttpURLConnection.HTTP_OK, request("PUT", "/RecvAddr?url=http://127.0.0.1:1", null).status);
+        List<String> dcc = Files.readAllLines(home.resolve("dcc"));
+        assertTrue(dcc.contains(RECV_ADDR_KEY + "/app1 http://127.0.0.1:1/app1"), dcc.toString());
+        assertTrue(dcc.contains(RECV_ADDR_KEY + " http://127.0.0.1:1"), dcc.toString());
+        assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, request("PUT", "/RecvAddr?app=app1", null).status);
+
+        // without app, receive addresses of all apps of the client are deleted
+        assertEquals(HttpURLConnection.HTTP_OK, request("DELETE", "/RecvAddr", null).status);
+        dcc = Files.readAllLines(home.resolve("dcc"));
+        assertFalse(dcc.stream().anyMatch(line -> line.startsWith(RECV_ADDR_KEY)), dcc.toString());
+    }
+
+    @Test
+    void failover() throws IOException, InterruptedException {
+        BlockingQueue<String> events = subscribeEvents();
+        try {
+            fakectl("flip", home.toString(), "2");
+            awaitEvent(events, "\"primary\":\"10.0.0.2\"");
+            awaitTrue("node 2 is primary in ClusterStatus",
+                () -> get("/ClusterStatus", null).body.contains("\"nodeIp\":\"10.0.0.2\",\"cmServerState\":\"Standby\","
+                        + "\"dnRole\":\"Primary\""));
+            awaitTrue("demotion is traced", () -> get("/FailoverTraces", null).body.contains("\"toRole\":\"Standby\""));
+
+            fakectl("flip", home.toString(), "1");
+            awaitEvent(events, "\"primary\":\"10.0.0.1\"");
+            awaitTrue("promotion is traced", () -> get("/FailoverTraces", null).body
+                    .contains("\"fromRole\":\"Standby\",\"toRole\":\"Primary\""));
+        } finally {
+            fakectl("flip", home.toString(), "1");
+        }
+    }
+
+    private static void fakectl(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList("bash", FIXTURE.resolve("fakectl").toString()));
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(new File(home.toFile(), "fakectl.log")))
+                .start();
+        assertTrue(process.waitFor(TIMEOUT, TimeUnit.MILLISECONDS), "fakectl " + command + " timed out");
+        assertEquals(0, process.exitValue(), "fakectl " + command + " failed");
+    }
+
+    private static Response get(String path, String ifNoneMatch) {
+        try {
+            return request("GET", path, ifNoneMatch);
+        } catch (IOException e) {
+            // not started yet
+            return new Response(-1, null, "");
+        }
+    }
+
+    private static Response request(String method, String path, String ifNoneMatch) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(10000);
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        try {
+            int status = connection.getResponseCode();
+            InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream()
+                    : connection.getErrorStream();
+            return new Response(status, connection.getHeaderField("ETag"), readAll(in));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream body = in) {
+            int length;
+            while ((length = body.read(buffer)) > 0) {
+                out.write(buffer, 0, length);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Subscribe events, lines received are put into the returned queue.
+     */
+    private static BlockingQueue<String> subscribeEvents() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/Events").openConnection();
+        connection.setConnectTimeout(5000);
+        assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(line);
+                }
+            } catch (IOException e) {
+                lines.add("closed: " + e.getMessage());
+            }
+        }, "EventsReader");
+        reader.setDaemon(true);
+        reader.start();
+        return lines;
+    }
+
+    private static void awaitEvent(BlockingQueue<String> lines, String content) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        List<String> received = new ArrayList<>();
+        while (System.currentTimeMillis() < deadline) {
+            String line = lines.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            if (line == null) {
+                break;
+            }
+            received.add(line);
+            if (line.contains(content)) {
+                return;
+            }
+        }
+        fail("No event with " + content + ", received " + received);
+    }
+
+    private static void awaitTrue(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting until " + what);
+            }
+            Thread.sleep(200L);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @Title: JsonPayloadTest
+ * @author: agent
+ * @Description: ETags, conditional matching and compression of serialized models.
+ * Created on: 2026/10/18
+ */
+class JsonPayloadTest {
+    private final JsonPayload payload = JsonPayload.of(Collections.singletonMap("clusterState", "Normal"));
+
+    @Test
+    void gzipHasOwnEtag() {
+        String etag = payload.getEtag();
+        assertNotEquals(etag, payload.getGzipEtag());
+        assertEquals(etag.substring(0, etag.length() - 1) + "-gz\"", payload.getGzipEtag());
+    }
+
+    @Test
+    void matchEitherRepresentation() {
+        assertTrue(payload.matches(payload.getEtag()));
+        assertTrue(payload.matches(payload.getGzipEtag()));
+        assertTrue(payload.matches("W/" + payload.getGzipEtag()));
+        assertTrue(payload.matches("\"other\", " + payload.getEtag()));
+        assertTrue(payload.matches("*"));
+        assertFalse(payload.matches("\"other\""));
+        assertFalse(payload.matches(null));
+    }
+
+    @Test
+    void reuseSameContent() {
+        JsonPayload same = JsonPayload.of(Collections.singletonMap("clusterState", "Normal"));
+        assertSame(payload, same.reuse(payload));
+        JsonPayload changed = JsonPayload.of(Collections.singletonMap("clusterState", "Degraded"));
+        assertSame(changed, changed.reuse(payload));
+    }
+
+    @Test
+    void acceptGzip() {
+        assertTrue(JsonPayload.acceptsGzip("gzip, deflate"));
+        assertTrue(JsonPayload.acceptsGzip("deflate, gzip;q=0.5"));
+        assertFalse(JsonPayload.acceptsGzip("gzip;q=0"));
+        assertFalse(JsonPayload.acceptsGzip("identity"));
+        assertFalse(JsonPayload.acceptsGzip(null));
+    }
+
+    @Test
+    void decompressGzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(payload.getGzipJson()))) {
+            byte[] buffer = new byte[256];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                out.write(buffer, 0, length);
+            }
+        }
+        assertArrayEquals(payload.getJson(), out.toByteArray());
+    }
+}
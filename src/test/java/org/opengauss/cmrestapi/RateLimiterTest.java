@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @Title: RateLimiterTest
+ * @author: agent
+ * @Description: Token buckets per client ip and route.
+ * Created on: 2026/10/18
+ */
+class RateLimiterTest {
+    // RecvAddr allows 5 requests per second with burst of 10 by default
+    private static final int BURST = 10;
+    private final RateLimiter rateLimiter = new RateLimiter();
+
+    @Test
+    void limitAfterBurst() {
+        for (int i = 0; i < BURST; i++) {
+            assertEquals(0L, rateLimiter.acquire("192.168.0.1", "RecvAddr"));
+        }
+        long wait = rateLimiter.acquire("192.168.0.1", "RecvAddr");
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(200), String.valueOf(wait));
+    }
+
+    @Test
+    void separateBucketsPerClientAndRoute() {
+        for (int i = 0; i < BURST; i++) {
+            rateLimiter.acquire("192.168.0.1", "RecvAddr");
+        }
+        assertTrue(rateLimiter.acquire("192.168.0.1", "RecvAddr") > 0);
+        assertEquals(0L, rateLimiter.acquire("192.168.0.2", "RecvAddr"));
+        assertEquals(0L, rateLimiter.acquire("192.168.0.1", "ClusterStatus"));
+    }
+
+    @Test
+    void unknownRouteIsNotLimited() {
+        for (int i = 0; i < BURST * 10; i++) {
+            assertEquals(0L, rateLimiter.acquire("192.168.0.1", "Metrics"));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2021 Huawei Technologies Co.,Ltd.
+ *
+ * CM is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *
+ *          http://license.coscl.org.cn/MulanPSL2
+ *
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.opengauss.cmrestapi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opengauss.cmrestapi.OGCmdExecuter.CmdResult;
+
+/**
+ * @Title: RecvAddrWriteCoalescerTest
+ * @author: agent
+ * @Description: Deduplication and ordering of coalesced receive address writes.
+ * Created on: 2026/10/18
+ */
+class RecvAddrWriteCoalescerTest {
+    private static final long TIMEOUT = 5L;
+
+    /**
+     * @Title: RecordingRegistry
+     * @author: agent
+     * @Description: Registry which records writes instead of sending them to dcc.
+     * Created on: 2026/10/18
+     */
+    private static class RecordingRegistry extends RecvAddrRegistry {
+        final List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, String> inDcc = new HashMap<>();
+
+        @Override
+        Map<String, String> queryRecvAddrs() {
+            return inDcc;
+        }
+
+        @Override
+        CompletableFuture<CmdResult> writeThroughAsync(String clientIp, String app, String url) {
+            String key = getKey(clientIp, app);
+            writes.add(url == null ? "delete " + (isEmpty(app) ? key + "*" : key) : "put " + key + " " + url);
+            return CompletableFuture.completedFuture(new CmdResult(0, key));
+        }
+    }
+
+    @BeforeAll
+    static void setEnvFile() throws IOException {
+        File envFile = File.createTempFile("cmrestapi", ".env");
+        envFile.deleteOnExit();
+        CMRestAPI.envFile = envFile.getPath();
+    }
+
+    @Test
+    void deduplicateWritesOfSameKey() throws Exception {
+        RecordingRegistry registry = new RecordingRegistry();
+        RecvAddrWriteCoalescer coalescer = new RecvAddrWriteCoalescer(registry);
+        CompletableFuture<CmdResult> first = coalescer.submit("10.0.0.1", "a", "http://a:1");
+        CompletableFuture<CmdResult> second = coalescer.submit("10.0.0.1", "a", "http://a:2");
+        assertSame(first.get(TIMEOUT, TimeUnit.SECONDS), second.get(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("put 10.0.0.1/a http://a:2"), registry.writes);
+    }
+
+    @Test
+    void keyWithoutAppIsClientIp() throws Exception {
+        RecordingRegistry registry = new RecordingRegistry();
+        RecvAddrWriteCoalescer coalescer = new RecvAddrWriteCoalescer(registry);
+        assertEquals("10.0.0.1", coalescer.submit("10.0.0.1", "", "http://a:1")
+                .get(TIMEOUT, TimeUnit.SECONDS).resultString);
+    }
+
+    @Test
+    void deleteWithoutAppSupersedesEarlierWrites() throws Exception {
+        RecordingRegistry registry = new RecordingRegistry();
+        RecvAddrWriteCoalescer coalescer = new RecvAddrWriteCoalescer(registry);
+        CompletableFuture<CmdResult> superseded = coalescer.submit("10.0.0.1", "a", "http://a:1");
+        CompletableFuture<CmdResult> delete = coalescer.submit("10.0.0.1", "", null);
+        CompletableFuture<CmdResult> putAfter = coalescer.submit("10.0.0.1", "b", "http://b:1");
+        CompletableFuture<CmdResult> putWithoutApp = coalescer.submit("10.0.0.1", "", "http://c:1");
+        CompletableFuture<CmdResult> otherIp = coalescer.submit("10.0.0.2", "a", "http://d:1");
+        assertSame(delete.get(TIMEOUT, TimeUnit.SECONDS), superseded.get(TIMEOUT, TimeUnit.SECONDS));
+        putAfter.get(TIMEOUT, TimeUnit.SECONDS);
+        putWithoutApp.get(TIMEOUT, TimeUnit.SECONDS);
+        otherIp.get(TIMEOUT, TimeUnit.SECONDS);
+        // the delete goes first, writes submitted after it follow in any order
+        assertEquals(4, registry.writes.size());
+        assertEquals("delete 10.0.0.1*", registry.writes.get(0));
+        assertEquals(new HashSet<>(registry.writes.subList(1, 4)), new HashSet<>(Arrays.asList(
+                "put 10.0.0.1/b http://b:1", "put 10.0.0.1 http://c:1", "put 10.0.0.2/a http://d:1")));
+    }
+
+    @Test
+    void putCachedUrlAfterDeleteWithoutApp() throws Exception {
+        RecordingRegistry registry = new RecordingRegistry();
+        registry.inDcc.put("10.0.0.1/b", "http://b:1");
+        registry.inDcc.put("10.0.0.2/b", "http://b:1");
+        assertTrue(registry.reconcile());
+        RecvAddrWriteCoalescer coalescer = new RecvAddrWriteCoalescer(registry);
+        CompletableFuture<CmdResult> delete = coalescer.submit("10.0.0.1", "", null);
+        CompletableFuture<CmdResult> putAgain = coalescer.submit("10.0.0.1", "b", "http://b:1");
+        CompletableFuture<CmdResult> otherIp = coalescer.submit("10.0.0.2", "b", "http://b:1");
+        delete.get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals("10.0.0.1/b", putAgain.get(TIMEOUT, TimeUnit.SECONDS).resultString);
+        // the cached url of another client ip is still not written again
+        assertEquals("Receive address not changed.", otherIp.get(TIMEOUT, TimeUnit.SECONDS).resultString);
+        assertEquals(Arrays.asList("delete 10.0.0.1*", "put 10.0.0.1/b http://b:1"), registry.writes);
+    }
+}
@@ -0,0 +1,60 @@
+#!/bin/bash
+# Common functions of fake openGauss commands.
+# FAKE_OG_HOME is the state directory created by fakectl setup, exported by its env file.
+
+if [ -z "$FAKE_OG_HOME" ] || [ ! -d "$FAKE_OG_HOME" ]; then
+    echo "FAKE_OG_HOME is not set, source env file created by fakectl setup." >&2
+    exit 1
+fi
+. "$FAKE_OG_HOME/fake.conf"
+
+# print id of primary node
+fake_primary() {
+    cat "$FAKE_OG_HOME/primary" 2>/dev/null || echo 1
+}
+
+# print role of datanode of node $1
+fake_role() {
+    if [ "$1" = "$(fake_primary)" ]; then
+        echo Primary
+    else
+        echo Standby
+    fi
+}
+
+# return 0 if datanode of node $1 is down
+fake_is_down() {
+    case " $FAKE_DOWN_NODES " in
+        *" $1 "*) return 0;;
+    esac
+    return 1
+}
+
+# replay recorded output of this call if there is one, then exit
+# file name is command and arguments joined by _, such as recorded/cm_ctl_query_-v.out
+fake_replay() {
+    local name
+    name=$(echo "$*" | tr ' /' '_#')
+    if [ -f "$FAKE_OG_HOME/recorded/$name.out" ]; then
+        cat "$FAKE_OG_HOME/recorded/$name.out"
+        exit 0
+    fi
+}
+
+# log call, sleep latency $1, then inject failure or hang
+fake_begin() {
+    local latency=$1
+    shift
+    if [ "$FAKE_LOG_CALLS" = 1 ]; then
+        echo "$(date +%s.%N) $*" >> "$FAKE_OG_HOME/calls.log"
+    fi
+    [ -z "$latency" ] && latency=$FAKE_LATENCY
+    sleep "$latency"
+    if [ $((RANDOM % 100)) -lt "$FAKE_HANG_PERCENT" ]; then
+        sleep "$FAKE_HANG"
+    fi
+    if [ $((RANDOM % 100)) -lt "$FAKE_FAIL_PERCENT" ]; then
+        echo "ERROR: injected failure of $*" >&2
+        exit 1
+    fi
+}